@@ -0,0 +1,218 @@
+package nz.ac.auckland.se281.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import nz.ac.auckland.se281.DotGraphLoader;
+import nz.ac.auckland.se281.datastructures.Edge;
+import nz.ac.auckland.se281.datastructures.Graph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Benchmarks loading and every public query of {@link Graph} over each graph in the `testcases`
+ * folder.
+ *
+ * <p>Run from the root of the repository so the `testcases` folder can be found, or point the
+ * `testcases` system property at it. Running the jar through {@link #main(String[])} adds the gc
+ * profiler so each result comes with its allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GraphBenchmark {
+  private static final Path TESTCASES = Path.of(System.getProperty("testcases", "testcases"));
+
+  /** The verticies and edges of a test case, parsed once for the whole run. */
+  @State(Scope.Benchmark)
+  public static class LoadedGraph {
+    @Param({
+      "a.txt",
+      "b.txt",
+      "c.txt",
+      "d.txt",
+      "e.txt",
+      "f.txt",
+      "g.txt",
+      "h.txt",
+      "i.txt",
+      "2-subgraphs.txt",
+      "test.txt",
+      "test-one.txt",
+      "test2.txt",
+      "test3.txt",
+      "test4.txt",
+      "test5.txt",
+      "test6.txt",
+      "test7.txt",
+      "useless-root.txt",
+      "test-100k.txt"
+    })
+    public String file;
+
+    private Set<String> verticies;
+    private Set<Edge<String>> edges;
+    private Graph<String> graph;
+    private String vertex;
+
+    /**
+     * Parses the test case the same way the calculator does.
+     *
+     * @throws IOException If the test case cannot be read.
+     */
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+      graph = DotGraphLoader.load(TESTCASES.resolve(file));
+      verticies = new HashSet<>(graph.getVerticies());
+      edges = new HashSet<>(graph.getEdges());
+      vertex = graph.getVerticies().get(0);
+      graph.setParallelism(Runtime.getRuntime().availableProcessors());
+    }
+  }
+
+  /**
+   * A graph built again before every call, so queries whose results the graph caches are measured
+   * computing them rather than reading the cache. Building the graph is not measured.
+   */
+  @State(Scope.Thread)
+  public static class FreshGraph {
+    private Graph<String> graph;
+
+    /**
+     * Builds a new graph from the parsed test case.
+     *
+     * @param loaded The parsed test case.
+     */
+    @Setup(Level.Invocation)
+    public void build(LoadedGraph loaded) {
+      graph = new Graph<>(loaded.verticies, loaded.edges);
+    }
+  }
+
+  @Benchmark
+  public Graph<String> load(LoadedGraph loaded) throws IOException {
+    return DotGraphLoader.load(TESTCASES.resolve(loaded.file));
+  }
+
+  @Benchmark
+  public Set<String> getRoots(FreshGraph fresh) {
+    return fresh.graph.getRoots();
+  }
+
+  @Benchmark
+  public boolean isReflexive(FreshGraph fresh) {
+    return fresh.graph.isReflexive();
+  }
+
+  @Benchmark
+  public boolean isSymmetric(FreshGraph fresh) {
+    return fresh.graph.isSymmetric();
+  }
+
+  @Benchmark
+  public boolean isTransitive(FreshGraph fresh) {
+    return fresh.graph.isTransitive();
+  }
+
+  @Benchmark
+  public boolean isAntiSymmetric(FreshGraph fresh) {
+    return fresh.graph.isAntiSymmetric();
+  }
+
+  @Benchmark
+  public boolean isEquivalence(FreshGraph fresh) {
+    return fresh.graph.isEquivalence();
+  }
+
+  @Benchmark
+  public Set<String> getEquivalenceClass(LoadedGraph loaded) {
+    return loaded.graph.getEquivalenceClass(loaded.vertex);
+  }
+
+  @Benchmark
+  public List<Set<String>> getEquivalenceClasses(LoadedGraph loaded) {
+    return loaded.graph.getEquivalenceClasses();
+  }
+
+  @Benchmark
+  public List<Set<String>> getStronglyConnectedComponents(FreshGraph fresh) {
+    return fresh.graph.getStronglyConnectedComponents();
+  }
+
+  @Benchmark
+  public Graph<Integer> getCondensation(FreshGraph fresh) {
+    return fresh.graph.getCondensation();
+  }
+
+  @Benchmark
+  public List<String> iterativeBreadthFirstSearch(LoadedGraph loaded) {
+    return loaded.graph.iterativeBreadthFirstSearch();
+  }
+
+  @Benchmark
+  public List<String> iterativeDepthFirstSearch(LoadedGraph loaded) {
+    return loaded.graph.iterativeDepthFirstSearch();
+  }
+
+  @Benchmark
+  public List<String> breadthFirstStreamFirst50(LoadedGraph loaded) {
+    return loaded.graph.breadthFirstStream().limit(50).collect(Collectors.toList());
+  }
+
+  @Benchmark
+  public List<String> depthFirstStreamFirst50(LoadedGraph loaded) {
+    return loaded.graph.depthFirstStream().limit(50).collect(Collectors.toList());
+  }
+
+  @Benchmark
+  public List<String> parallelBreadthFirstSearch(LoadedGraph loaded) {
+    return loaded.graph.parallelBreadthFirstSearch();
+  }
+
+  @Benchmark
+  public List<String> recursiveBreadthFirstSearch(LoadedGraph loaded) {
+    return loaded.graph.recursiveBreadthFirstSearch();
+  }
+
+  @Benchmark
+  public List<String> recursiveDepthFirstSearch(LoadedGraph loaded) {
+    return loaded.graph.recursiveDepthFirstSearch();
+  }
+
+  /**
+   * Runs every benchmark, or those matching the given pattern, with the gc profiler attached.
+   *
+   * @param args An optional regular expression selecting the benchmarks to run.
+   * @throws RunnerException If the benchmarks fail to run.
+   */
+  public static void main(final String[] args) throws RunnerException {
+    final Options options =
+        new OptionsBuilder()
+            .include(args.length > 0 ? args[0] : GraphBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+
+    new Runner(options).run();
+  }
+}
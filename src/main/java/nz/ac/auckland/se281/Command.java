@@ -1,13 +1,21 @@
 package nz.ac.auckland.se281;
 
-/**
- * The commands that the user can enter into the CLI.
- *
- * <p>You should not modify this class.
- */
+/** The commands that the user can enter into the CLI. */
 public enum Command {
   OPEN_FILE(1, "Open the file <FILENAME>"),
+  OPEN_SNAPSHOT(1, "Open the binary graph snapshot <FILENAME>"),
+  SAVE_SNAPSHOT(1, "Save the loaded graph as a binary snapshot <FILENAME>"),
   INFO(0, "Print information about the current loaded file"),
+  OUTPUT_FILE(1, "Append lists of results to the file <FILENAME>, or - to print them"),
+  SET_PARALLELISM(1, "Set the number of threads used to check properties <THREADS>"),
+  SHOW_COUNTEREXAMPLES(1, "Print why a checked property does not hold <on|off>"),
+  STATS(0, "Print the time and work spent on each command so far"),
+  EXPORT_STATS(1, "Append the time and work spent on each command as JSON lines to <FILENAME>"),
+  LATENCY(0, "Print the latency percentiles of the requests to the query server"),
+
+  ADD_VERTEX(1, "Add the vertex <VERTEX> to the loaded graph"),
+  ADD_EDGE(2, "Add an edge to the loaded graph from <SOURCE> to <DESTINATION>"),
+  REMOVE_EDGE(2, "Remove the edge from <SOURCE> to <DESTINATION> from the loaded graph"),
 
   LIST_VERTICIES_EDGES(0, "List the set of vertices and edges"),
   LIST_ROOT_VERTICIES(0, "List the set of root vertices"),
@@ -18,11 +26,24 @@ public enum Command {
   CHECK_ANTISYMMETRY(0, "Check anti-symmetry of the graph"),
   CHECK_EQUIVALENCE(0, "Check equivalence of the graph"),
   COMPUTE_EQUIVALENCE(1, "Compute equivalence class for a vertex in loaded file <VERTEX>"),
+  LIST_EQUIVALENCE_CLASSES(0, "List every equivalence class of the loaded file"),
+  LIST_COMPONENTS(0, "List every strongly connected component of the loaded file, by id"),
+  LIST_COMPONENT_SIZES(0, "List the size of every strongly connected component, by id"),
+  COMPUTE_COMPONENT(1, "Compute the strongly connected component id of <VERTEX>"),
+  LIST_CONDENSATION(0, "List the condensation of the strongly connected components, by id"),
 
   GRAPH_SEARCH_IBFS(
       0, "Perform a breadth-first search on the current loaded file, and display the BFS order"),
   GRAPH_SEARCH_IDFS(
       0, "Perform a depth-first search on the current loaded file, and display the DFS order"),
+  GRAPH_SEARCH_IBFS_LIMIT(
+      1,
+      "Perform a breadth-first search on the current loaded file, and display the first <LIMIT>"
+          + " vertices of the BFS order"),
+  GRAPH_SEARCH_IDFS_LIMIT(
+      1,
+      "Perform a depth-first search on the current loaded file, and display the first <LIMIT>"
+          + " vertices of the DFS order"),
 
   GRAPH_SEARCH_RBFS(
       0,
@@ -32,6 +53,10 @@ public enum Command {
       0,
       "Perform a recursive depth-first search on the current loaded file, and display the DFS"
           + " order"),
+  GRAPH_SEARCH_PBFS(
+      0,
+      "Perform a parallel breadth-first search on the current loaded file, and display the BFS"
+          + " order"),
 
   HELP(0, "Print usage"),
   EXIT(0, "Exit the application");
@@ -0,0 +1,279 @@
+package nz.ac.auckland.se281;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.Map;
+import nz.ac.auckland.se281.datastructures.WorkCounter;
+
+/**
+ * Records the time and work spent on each command: the wall time, the CPU time and bytes allocated
+ * by the thread running the commands, the verticies visited and edges scanned by the graph, and
+ * the deepest any recursive search went. Work done on other threads, such as by parallel checks,
+ * shows in the wall time and the graph counters but not in the CPU time or allocations. Wall times
+ * are also kept in a histogram with one bucket for each power of two microseconds.
+ */
+public class CommandStats {
+  private static final int BUCKETS = 48;
+
+  /** The totals recorded for one command. */
+  private static class Entry {
+    private long count;
+    private long wallNanos;
+    private long cpuNanos;
+    private long allocatedBytes;
+    private long verticiesVisited;
+    private long edgesScanned;
+    private long deepestRecursion;
+    private final long[] histogram = new long[BUCKETS];
+  }
+
+  /** The counters read before a command runs, to take away from those read after it. */
+  public static class Sample {
+    private final WorkCounter work;
+    private final long wallNanos;
+    private final long cpuNanos;
+    private final long allocatedBytes;
+    private final long verticiesVisited;
+    private final long edgesScanned;
+
+    /**
+     * Create a new sample.
+     *
+     * @param work The work counter of the open graph, or null if there is none.
+     * @param wallNanos The wall time.
+     * @param cpuNanos The CPU time of the thread.
+     * @param allocatedBytes The bytes allocated by the thread.
+     */
+    private Sample(
+        final WorkCounter work,
+        final long wallNanos,
+        final long cpuNanos,
+        final long allocatedBytes) {
+      this.work = work;
+      this.wallNanos = wallNanos;
+      this.cpuNanos = cpuNanos;
+      this.allocatedBytes = allocatedBytes;
+      this.verticiesVisited = work == null ? 0 : work.getVerticiesVisited();
+      this.edgesScanned = work == null ? 0 : work.getEdgesScanned();
+    }
+  }
+
+  private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+  private final boolean cpuTimeSupported = threads.isCurrentThreadCpuTimeSupported();
+
+  private final boolean allocationSupported;
+
+  private final Map<Command, Entry> entries = new EnumMap<Command, Entry>(Command.class);
+
+  /** Create a new, empty set of statistics. */
+  public CommandStats() {
+    // allocations can only be read through the extended bean that HotSpot provides
+    boolean supported = false;
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      final com.sun.management.ThreadMXBean extended = (com.sun.management.ThreadMXBean) threads;
+      supported = extended.isThreadAllocatedMemorySupported();
+      if (supported && !extended.isThreadAllocatedMemoryEnabled()) {
+        extended.setThreadAllocatedMemoryEnabled(true);
+      }
+    }
+    allocationSupported = supported;
+  }
+
+  /**
+   * Read the counters before a command runs.
+   *
+   * @param calculator The calculator of the open graph, or null if there is none.
+   * @return The counters.
+   */
+  public Sample start(final GraphCalculator calculator) {
+    final WorkCounter work = calculator == null ? null : calculator.getWorkCounter();
+
+    // the deepest recursion only ever grows, so it is reset to read this command's own
+    if (work != null) {
+      work.resetDeepestRecursion();
+    }
+    return new Sample(
+        work,
+        System.nanoTime(),
+        readCpuNanos(),
+        readAllocatedBytes());
+  }
+
+  /**
+   * Record the time and work a command took since its sample was read.
+   *
+   * @param command The command that ran.
+   * @param sample The counters read before it ran.
+   * @param calculator The calculator of the open graph after it ran, or null if there is none.
+   */
+  public void record(final Command command, final Sample sample, final GraphCalculator calculator) {
+    final long wallNanos = System.nanoTime() - sample.wallNanos;
+    Entry entry = entries.get(command);
+
+    if (entry == null) {
+      entry = new Entry();
+      entries.put(command, entry);
+    }
+    entry.count++;
+    entry.wallNanos += wallNanos;
+    entry.cpuNanos += readCpuNanos() - sample.cpuNanos;
+    entry.allocatedBytes += readAllocatedBytes() - sample.allocatedBytes;
+    entry.histogram[bucketOf(wallNanos)]++;
+
+    // opening a graph does no work on it, and a graph from the cache has counted work before
+    final WorkCounter work = calculator == null ? null : calculator.getWorkCounter();
+    if (work != null && work == sample.work) {
+      entry.verticiesVisited += work.getVerticiesVisited() - sample.verticiesVisited;
+      entry.edgesScanned += work.getEdgesScanned() - sample.edgesScanned;
+      entry.deepestRecursion = Math.max(entry.deepestRecursion, work.getDeepestRecursion());
+    }
+  }
+
+  /**
+   * Find the histogram bucket of a wall time, the bucket i holding times under 2^i microseconds.
+   *
+   * @param wallNanos The wall time in nanoseconds.
+   * @return The bucket.
+   */
+  private static int bucketOf(final long wallNanos) {
+    final long micros = wallNanos / 1000;
+
+    return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+  }
+
+  /**
+   * Read the CPU time of the current thread.
+   *
+   * @return The CPU time in nanoseconds, or 0 if it cannot be read.
+   */
+  private long readCpuNanos() {
+    return cpuTimeSupported ? threads.getCurrentThreadCpuTime() : 0;
+  }
+
+  /**
+   * Read the bytes allocated by the current thread.
+   *
+   * @return The number of bytes, or 0 if it cannot be read.
+   */
+  private long readAllocatedBytes() {
+    if (!allocationSupported) {
+      return 0;
+    }
+    return ((com.sun.management.ThreadMXBean) threads)
+        .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Print the totals and the wall time histogram of every command that has run.
+   *
+   * @param out The stream to print to.
+   */
+  public void print(final PrintStream out) {
+    if (entries.isEmpty()) {
+      MessageCli.STATS_EMPTY.printMessage(out);
+      return;
+    }
+
+    for (final Map.Entry<Command, Entry> each : entries.entrySet()) {
+      final Entry entry = each.getValue();
+      MessageCli.STATS_COMMAND.printMessage(
+          out,
+          each.getKey().toString(),
+          String.valueOf(entry.count),
+          entry.count > 1 ? "s" : "",
+          formatMillis(entry.wallNanos),
+          formatMillis(entry.cpuNanos),
+          String.valueOf(entry.allocatedBytes),
+          String.valueOf(entry.verticiesVisited),
+          String.valueOf(entry.edgesScanned));
+      if (entry.deepestRecursion > 0) {
+        MessageCli.STATS_RECURSION.printMessage(out, String.valueOf(entry.deepestRecursion));
+      }
+
+      // only the buckets that have been used are printed
+      for (int i = 0; i < BUCKETS; i++) {
+        if (entry.histogram[i] > 0) {
+          MessageCli.STATS_BUCKET.printMessage(
+              out, String.valueOf(1L << i), String.valueOf(entry.histogram[i]));
+        }
+      }
+    }
+  }
+
+  /**
+   * Format nanoseconds as milliseconds to three decimal places.
+   *
+   * @param nanos The time in nanoseconds.
+   * @return The formatted time.
+   */
+  private static String formatMillis(final long nanos) {
+    return String.format("%.3f", nanos / 1e6);
+  }
+
+  /**
+   * Append the totals and histogram of every command that has run to a file, one JSON object per
+   * line. The deepest recursion is 0 for commands that run no recursive search. Each histogram is
+   * an array of counts, the count at index i being the runs that took under 2^i microseconds,
+   * ending at the last bucket that has been used.
+   *
+   * @param file The file to append to, which is created if it does not exist.
+   * @throws IOException If the file cannot be written.
+   */
+  public void export(final Path file) throws IOException {
+    try (BufferedWriter writer =
+        Files.newBufferedWriter(
+            file,
+            StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND)) {
+      for (final Map.Entry<Command, Entry> each : entries.entrySet()) {
+        writer.write(toJson(each.getKey(), each.getValue()));
+        writer.newLine();
+      }
+    }
+  }
+
+  /**
+   * Convert the totals of a command to a JSON object on one line. Command names are plain
+   * identifiers, so nothing needs escaping.
+   *
+   * @param command The command.
+   * @param entry Its totals.
+   * @return The JSON object.
+   */
+  private static String toJson(final Command command, final Entry entry) {
+    final StringBuilder sb = new StringBuilder();
+    int last = BUCKETS - 1;
+
+    while (last > 0 && entry.histogram[last] == 0) {
+      last--;
+    }
+
+    sb.append("{\"command\":\"").append(command).append('"');
+    sb.append(",\"count\":").append(entry.count);
+    sb.append(",\"wallNanos\":").append(entry.wallNanos);
+    sb.append(",\"cpuNanos\":").append(entry.cpuNanos);
+    sb.append(",\"allocatedBytes\":").append(entry.allocatedBytes);
+    sb.append(",\"verticiesVisited\":").append(entry.verticiesVisited);
+    sb.append(",\"edgesScanned\":").append(entry.edgesScanned);
+    sb.append(",\"deepestRecursion\":").append(entry.deepestRecursion);
+    sb.append(",\"wallMicrosHistogram\":[");
+    for (int i = 0; i <= last; i++) {
+      if (i > 0) {
+        sb.append(',');
+      }
+      sb.append(entry.histogram[i]);
+    }
+    return sb.append("]}").toString();
+  }
+}
@@ -0,0 +1,480 @@
+package nz.ac.auckland.se281;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import nz.ac.auckland.se281.datastructures.AdjacencyIndex;
+import nz.ac.auckland.se281.datastructures.Graph;
+import nz.ac.auckland.se281.datastructures.OffHeapAdjacencyIndex;
+import nz.ac.auckland.se281.datastructures.VertexDictionary;
+
+/**
+ * Loads a graph from a DOT file by streaming it through a buffered channel, reading each edge
+ * straight into arrays of vertex ordinals rather than building an object for every node and edge.
+ *
+ * <p>Only the part of DOT used by the test cases is understood: a single graph of node statements
+ * (`a`) and edge statements (`a -> b -> c`), separated by newlines or semicolons, with `//`, `/*`
+ * and `#` comments. Attribute lists (`[...]`) and attribute statements (`a = b`) are skipped.
+ */
+public class DotGraphLoader {
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private static final int END = -1;
+  private static final int ID = 0;
+  private static final int ARROW = 1;
+  private static final int OPEN_BRACE = 2;
+  private static final int CLOSE_BRACE = 3;
+  private static final int OPEN_BRACKET = 4;
+  private static final int CLOSE_BRACKET = 5;
+  private static final int EQUALS = 6;
+  private static final int SEPARATOR = 7;
+
+  private final ReadableByteChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private byte[] text = new byte[64];
+  private int textLength;
+  private int pushedBack = -2;
+  private int line = 1;
+
+  private final Map<String, Integer> ids = new HashMap<>();
+  private final List<String> names = new ArrayList<>();
+  private int[] sources = new int[1024];
+  private int[] destinations = new int[1024];
+  private int edgeCount;
+
+  /**
+   * Loads the graph in the given DOT file.
+   *
+   * @param file The file to read.
+   * @return The graph in the file.
+   * @throws IOException If the file cannot be read.
+   * @throws IllegalArgumentException If the file is not a DOT graph this loader understands.
+   */
+  public static Graph<String> load(final Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return new DotGraphLoader(channel).read();
+    }
+  }
+
+  /**
+   * Creates a new loader that reads from the given channel.
+   *
+   * @param channel The channel to read the DOT text from.
+   */
+  public DotGraphLoader(final ReadableByteChannel channel) {
+    this.channel = channel;
+    buffer.flip();
+  }
+
+  /**
+   * Reads the whole graph from the channel and indexes it.
+   *
+   * @return The graph that was read.
+   * @throws IOException If the channel cannot be read.
+   */
+  public Graph<String> read() throws IOException {
+    int token = nextToken();
+
+    // the header is an optional "strict", "digraph" and an optional name
+    if (token == ID && textEquals("strict")) {
+      token = nextToken();
+    }
+    if (token != ID || !textEquals("digraph")) {
+      throw error("expected 'digraph'");
+    }
+    token = nextToken();
+    if (token == ID) {
+      token = nextToken();
+    }
+    if (token != OPEN_BRACE) {
+      throw error("expected '{'");
+    }
+
+    readStatements();
+
+    // numbers the verticies in numeric order, then moves every edge over to those ordinals
+    final VertexDictionary<String> dictionary = new VertexDictionary<>(names);
+    final int[] ordinals = new int[names.size()];
+    for (int i = 0; i < ordinals.length; i++) {
+      ordinals[i] = dictionary.getOrdinal(names.get(i));
+    }
+    for (int i = 0; i < edgeCount; i++) {
+      sources[i] = ordinals[sources[i]];
+      destinations[i] = ordinals[destinations[i]];
+    }
+
+    // large graphs are still parsed and indexed on the heap, and only moved out of it once built
+    return new Graph<>(
+        dictionary,
+        OffHeapAdjacencyIndex.moveIfLarge(
+            new AdjacencyIndex<>(dictionary, sources, destinations, edgeCount)));
+  }
+
+  /**
+   * Reads statements until the brace that closes the graph.
+   *
+   * @throws IOException If the channel cannot be read.
+   */
+  private void readStatements() throws IOException {
+    int token = nextToken();
+
+    while (token != CLOSE_BRACE) {
+      if (token == END) {
+        throw error("expected '}'");
+      } else if (token == SEPARATOR) {
+        token = nextToken();
+      } else if (token == OPEN_BRACKET) {
+        skipAttributes();
+        token = nextToken();
+      } else if (token != ID) {
+        throw error("unexpected symbol");
+      } else {
+        token = readStatement();
+      }
+    }
+  }
+
+  /**
+   * Reads a statement that starts with the ID that was just read.
+   *
+   * @return The token after the statement.
+   * @throws IOException If the channel cannot be read.
+   */
+  private int readStatement() throws IOException {
+    final String first = new String(text, 0, textLength, StandardCharsets.UTF_8);
+    int token = nextToken();
+
+    // an attribute statement such as "rankdir = LR" says nothing about the verticies
+    if (token == EQUALS) {
+      if (nextToken() != ID) {
+        throw error("expected a value after '='");
+      }
+      return nextToken();
+    }
+    // so does "node [...]", "edge [...]" or "graph [...]"
+    if (token == OPEN_BRACKET
+        && (first.equals("node") || first.equals("edge") || first.equals("graph"))) {
+      skipAttributes();
+      return nextToken();
+    }
+
+    int previous = vertex(first);
+    // follows the chain of edges, a -> b -> c is the edges a -> b and b -> c
+    while (token == ARROW) {
+      if (nextToken() != ID) {
+        throw error("expected a vertex after '->'");
+      }
+      final int next = vertex(new String(text, 0, textLength, StandardCharsets.UTF_8));
+      addEdge(previous, next);
+      previous = next;
+      token = nextToken();
+    }
+    if (token == OPEN_BRACKET) {
+      skipAttributes();
+      token = nextToken();
+    }
+    return token;
+  }
+
+  /**
+   * Skips an attribute list, up to and including its closing bracket.
+   *
+   * @throws IOException If the channel cannot be read.
+   */
+  private void skipAttributes() throws IOException {
+    int token = nextToken();
+
+    while (token != CLOSE_BRACKET) {
+      if (token == END) {
+        throw error("expected ']'");
+      }
+      token = nextToken();
+    }
+  }
+
+  /**
+   * Gets the ordinal of the vertex with the given id, in the order verticies are first seen.
+   *
+   * @param id The id of the vertex.
+   * @return The ordinal of the vertex.
+   */
+  private int vertex(final String id) {
+    Integer ordinal = ids.get(id);
+
+    if (ordinal == null) {
+      ordinal = names.size();
+      ids.put(id, ordinal);
+      names.add(id);
+    }
+    return ordinal;
+  }
+
+  /**
+   * Records an edge between two verticies, growing the edge arrays when they are full.
+   *
+   * @param source The ordinal of the source vertex.
+   * @param destination The ordinal of the destination vertex.
+   */
+  private void addEdge(final int source, final int destination) {
+    if (edgeCount == sources.length) {
+      sources = Arrays.copyOf(sources, edgeCount * 2);
+      destinations = Arrays.copyOf(destinations, edgeCount * 2);
+    }
+    sources[edgeCount] = source;
+    destinations[edgeCount] = destination;
+    edgeCount++;
+  }
+
+  /**
+   * Reads the next token, skipping whitespace and comments. The text of an ID is left in the text
+   * buffer.
+   *
+   * @return The type of the token.
+   * @throws IOException If the channel cannot be read.
+   */
+  private int nextToken() throws IOException {
+    int c = skipSpace();
+
+    switch (c) {
+      case END:
+        return END;
+      case '{':
+        return OPEN_BRACE;
+      case '}':
+        return CLOSE_BRACE;
+      case '[':
+        return OPEN_BRACKET;
+      case ']':
+        return CLOSE_BRACKET;
+      case '=':
+        return EQUALS;
+      case ';':
+      case ',':
+        return SEPARATOR;
+      case '"':
+        readQuoted();
+        return ID;
+      case '-':
+        final int next = nextByte();
+        if (next == '>') {
+          return ARROW;
+        }
+        // a negative number
+        pushBack(next);
+        readId(c);
+        return ID;
+      default:
+        if (!isIdCharacter(c)) {
+          throw error("unexpected character '" + (char) c + "'");
+        }
+        readId(c);
+        return ID;
+    }
+  }
+
+  /**
+   * Skips whitespace and comments.
+   *
+   * @return The first character after them.
+   * @throws IOException If the channel cannot be read.
+   */
+  private int skipSpace() throws IOException {
+    while (true) {
+      final int c = nextByte();
+
+      if (c == '#') {
+        skipLine();
+      } else if (c == '/') {
+        final int next = nextByte();
+        if (next == '/') {
+          skipLine();
+        } else if (next == '*') {
+          skipBlockComment();
+        } else {
+          throw error("unexpected character '/'");
+        }
+      } else if (c == END || !Character.isWhitespace(c)) {
+        return c;
+      }
+    }
+  }
+
+  /**
+   * Skips to the end of the current line.
+   *
+   * @throws IOException If the channel cannot be read.
+   */
+  private void skipLine() throws IOException {
+    int c = nextByte();
+
+    while (c != '\n' && c != END) {
+      c = nextByte();
+    }
+  }
+
+  /**
+   * Skips to the end of a block comment.
+   *
+   * @throws IOException If the channel cannot be read.
+   */
+  private void skipBlockComment() throws IOException {
+    int previous = 0;
+    int c = nextByte();
+
+    while (!(previous == '*' && c == '/')) {
+      if (c == END) {
+        throw error("unclosed comment");
+      }
+      previous = c;
+      c = nextByte();
+    }
+  }
+
+  /**
+   * Reads an unquoted ID starting with the given character into the text buffer.
+   *
+   * @param first The first character of the ID.
+   * @throws IOException If the channel cannot be read.
+   */
+  private void readId(final int first) throws IOException {
+    textLength = 0;
+    append(first);
+
+    int c = nextByte();
+    while (isIdCharacter(c)) {
+      append(c);
+      c = nextByte();
+    }
+    pushBack(c);
+  }
+
+  /**
+   * Reads a quoted ID into the text buffer, without its quotes.
+   *
+   * @throws IOException If the channel cannot be read.
+   */
+  private void readQuoted() throws IOException {
+    textLength = 0;
+
+    int c = nextByte();
+    while (c != '"') {
+      if (c == END) {
+        throw error("unclosed string");
+      }
+      // an escaped quote is part of the ID
+      if (c == '\\') {
+        final int next = nextByte();
+        if (next != '"') {
+          append(c);
+        }
+        c = next;
+      }
+      append(c);
+      c = nextByte();
+    }
+  }
+
+  /**
+   * Checks if the character can be part of an unquoted ID.
+   *
+   * @param c The character.
+   * @return If it can be part of an ID.
+   */
+  private static boolean isIdCharacter(final int c) {
+    return (c >= 'a' && c <= 'z')
+        || (c >= 'A' && c <= 'Z')
+        || (c >= '0' && c <= '9')
+        || c == '_'
+        || c == '.'
+        || c >= 0x80;
+  }
+
+  /**
+   * Checks if the text buffer holds the given ASCII word.
+   *
+   * @param word The word to compare with.
+   * @return If they are the same.
+   */
+  private boolean textEquals(final String word) {
+    if (textLength != word.length()) {
+      return false;
+    }
+    for (int i = 0; i < textLength; i++) {
+      if (text[i] != word.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Adds a byte to the text buffer, growing it when it is full.
+   *
+   * @param c The byte to add.
+   */
+  private void append(final int c) {
+    if (textLength == text.length) {
+      text = Arrays.copyOf(text, textLength * 2);
+    }
+    text[textLength++] = (byte) c;
+  }
+
+  /**
+   * Reads the next byte, refilling the buffer from the channel when it runs out.
+   *
+   * @return The next byte, or END at the end of the channel.
+   * @throws IOException If the channel cannot be read.
+   */
+  private int nextByte() throws IOException {
+    if (pushedBack != -2) {
+      final int c = pushedBack;
+      pushedBack = -2;
+      return c;
+    }
+    if (!buffer.hasRemaining()) {
+      buffer.clear();
+      int count = channel.read(buffer);
+      while (count == 0) {
+        count = channel.read(buffer);
+      }
+      buffer.flip();
+      if (count == -1) {
+        return END;
+      }
+    }
+
+    final int c = buffer.get() & 0xFF;
+    if (c == '\n') {
+      line++;
+    }
+    return c;
+  }
+
+  /**
+   * Puts back a byte so the next read returns it again.
+   *
+   * @param c The byte to put back.
+   */
+  private void pushBack(final int c) {
+    pushedBack = c;
+  }
+
+  /**
+   * Creates an error describing where in the file it happened.
+   *
+   * @param message What went wrong.
+   * @return The error.
+   */
+  private IllegalArgumentException error(final String message) {
+    return new IllegalArgumentException("Invalid DOT graph on line " + line + ": " + message);
+  }
+}
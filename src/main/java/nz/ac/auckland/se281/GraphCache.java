@@ -0,0 +1,248 @@
+package nz.ac.auckland.se281;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import nz.ac.auckland.se281.datastructures.Graph;
+
+/**
+ * A cache of the graphs loaded from files, so opening a file again reuses the graph and everything
+ * it has already computed. A cached graph is only reused while its file has the same modification
+ * time and size, and while the graph itself has not been changed since it was loaded. The least
+ * recently opened graphs are evicted once the estimated heap footprint of all the cached graphs
+ * goes over the budget, though the most recent one is always kept. A file is cached separately for
+ * each format it is opened as, so opening a DOT file as a snapshot still reads it as one. Graphs
+ * are loaded outside the lock on the cache, so a slow load only holds up the clients waiting for
+ * the same file.
+ */
+public class GraphCache {
+  /** Loads a graph from a file when it is not in the cache. */
+  public interface Loader {
+    /**
+     * Load the graph in the given file.
+     *
+     * @param file The file to load.
+     * @return The graph in the file.
+     * @throws IOException If the file cannot be read.
+     */
+    Graph<String> load(Path file) throws IOException;
+  }
+
+  /** The formats a graph can be read from. */
+  public enum Format {
+    DOT,
+    SNAPSHOT
+  }
+
+  /**
+   * Identifies a cached graph by the file it was read from and the format it was read as.
+   *
+   * @param file The absolute and normalized path of the file.
+   * @param format The format of the file.
+   */
+  private record Key(Path file, Format format) {}
+
+  /** A cached graph along with the state of the file it was loaded from. */
+  private static class Entry {
+    private final FileTime modified;
+    private final long size;
+    private final Graph<String> graph;
+    private final int modificationCount;
+    private long footprint;
+
+    /**
+     * Create a new entry.
+     *
+     * @param modified The modification time of the file.
+     * @param size The size of the file in bytes.
+     * @param graph The graph loaded from the file.
+     */
+    Entry(final FileTime modified, final long size, final Graph<String> graph) {
+      this.modified = modified;
+      this.size = size;
+      this.graph = graph;
+      this.modificationCount = graph.getModificationCount();
+      this.footprint = graph.estimateFootprint();
+    }
+  }
+
+  private final long budget;
+
+  private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  // the loads running now, so clients asking for a file that is being loaded wait for that load
+  // rather than starting another
+  private final ConcurrentHashMap<Key, FutureTask<Entry>> loading = new ConcurrentHashMap<>();
+
+  private long footprint;
+
+  private int hits;
+
+  private int misses;
+
+  /**
+   * Create a new cache.
+   *
+   * @param budget The most bytes of heap the cached graphs should use.
+   */
+  public GraphCache(final long budget) {
+    this.budget = budget;
+  }
+
+  /**
+   * Get the graph in the given file, loading it only if it is not cached as the given format or the
+   * file has changed.
+   *
+   * @param file The file to get the graph of.
+   * @param format The format the loader reads the file as.
+   * @param loader Loads the graph if it is not cached.
+   * @return The graph in the file.
+   * @throws IOException If the file cannot be read.
+   */
+  public Graph<String> get(final Path file, final Format format, final Loader loader)
+      throws IOException {
+    final Key key = new Key(file.toAbsolutePath().normalize(), format);
+    final BasicFileAttributes attributes =
+        Files.readAttributes(key.file(), BasicFileAttributes.class);
+
+    synchronized (this) {
+      final Entry entry = entries.get(key);
+
+      if (entry != null
+          && entry.modified.equals(attributes.lastModifiedTime())
+          && entry.size == attributes.size()
+          && entry.modificationCount == entry.graph.getModificationCount()) {
+        hits++;
+        // the graph may have cached more results since it was last counted
+        footprint -= entry.footprint;
+        entry.footprint = entry.graph.estimateFootprint();
+        footprint += entry.footprint;
+        evict();
+        return entry.graph;
+      }
+    }
+
+    final FutureTask<Entry> task =
+        new FutureTask<Entry>(
+            new Callable<Entry>() {
+              @Override
+              public Entry call() throws IOException {
+                return new Entry(
+                    attributes.lastModifiedTime(), attributes.size(), loader.load(key.file()));
+              }
+            });
+    final FutureTask<Entry> running = loading.putIfAbsent(key, task);
+    final Entry entry;
+
+    if (running == null) {
+      task.run();
+    }
+    try {
+      entry = await(running == null ? task : running);
+    } finally {
+      if (running == null) {
+        loading.remove(key, task);
+      }
+    }
+
+    synchronized (this) {
+      final Entry replaced = entries.put(key, entry);
+
+      if (running == null) {
+        misses++;
+      }
+      // every client that waited on the same load puts the same entry
+      if (replaced != entry) {
+        if (replaced != null) {
+          footprint -= replaced.footprint;
+        }
+        footprint += entry.footprint;
+      }
+      evict();
+    }
+    return entry.graph;
+  }
+
+  /**
+   * Wait for a load to finish, throwing whatever the loader threw.
+   *
+   * @param task The load.
+   * @return The entry for the loaded graph.
+   * @throws IOException If the file cannot be read, or the wait is interrupted.
+   */
+  private static Entry await(final FutureTask<Entry> task) throws IOException {
+    try {
+      return task.get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the graph to load");
+    } catch (final ExecutionException e) {
+      final Throwable cause = e.getCause();
+
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  /** Evict the least recently used graphs until the rest fit in the budget. */
+  private void evict() {
+    final Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+
+    while (footprint > budget && entries.size() > 1) {
+      footprint -= eldest.next().getValue().footprint;
+      eldest.remove();
+    }
+  }
+
+  /**
+   * Get the number of graphs in the cache.
+   *
+   * @return The number of graphs.
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Get the estimated bytes of heap used by the cached graphs.
+   *
+   * @return The estimated number of bytes.
+   */
+  public synchronized long getFootprint() {
+    return footprint;
+  }
+
+  /**
+   * Get the number of times a graph was found in the cache.
+   *
+   * @return The number of hits.
+   */
+  public synchronized int getHits() {
+    return hits;
+  }
+
+  /**
+   * Get the number of times a graph had to be loaded.
+   *
+   * @return The number of misses.
+   */
+  public synchronized int getMisses() {
+    return misses;
+  }
+}
@@ -1,119 +1,403 @@
 package nz.ac.auckland.se281;
 
-import com.paypal.digraph.parser.GraphEdge;
-import com.paypal.digraph.parser.GraphNode;
-import com.paypal.digraph.parser.GraphParser;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Iterator;
+import java.util.List;
 import nz.ac.auckland.se281.datastructures.Edge;
 import nz.ac.auckland.se281.datastructures.Graph;
+import nz.ac.auckland.se281.datastructures.GraphSnapshot;
+import nz.ac.auckland.se281.datastructures.WorkCounter;
 
-/**
- * The calculator that reports properties of graphs to the user.
- *
- * <p>You should not modify this class.
- */
+/** The calculator that reports properties of graphs to the user. */
 public class GraphCalculator {
   private static final Path TESTCASES = Path.of("testcases");
 
   private final Path file;
 
-  private final Collection<GraphNode> verticies;
+  private final Graph<String> graph;
 
-  private final Collection<GraphEdge> edges;
+  private PrintStream out = System.out;
 
-  private final Graph<String> graph;
+  private Path resultFile;
+
+  private boolean showCounterexamples;
 
   /**
    * Creates a new graph calculator.
    *
    * @param filename The name of the test case to read.
    * @throws FileNotFoundException If the file does not exist.
+   * @throws IOException If the file cannot be read.
+   * @throws IllegalArgumentException If the file is not a valid DOT graph.
+   */
+  public GraphCalculator(final String filename) throws IOException {
+    this(filename, null, false);
+  }
+
+  /**
+   * Creates a new graph calculator, reusing the graph from the cache if the file has not changed
+   * since it was last opened.
+   *
+   * @param filename The name of the test case to read.
+   * @param cache The cache of loaded graphs, or null to always load the file.
+   * @param shared If the cached graph is shared with other clients, so is only queried through a
+   *     session of its own, see {@link Graph#newSession()}.
+   * @throws FileNotFoundException If the file does not exist.
+   * @throws IOException If the file cannot be read.
+   * @throws IllegalArgumentException If the file is not a valid DOT graph.
    */
-  public GraphCalculator(final String filename) throws FileNotFoundException {
+  public GraphCalculator(final String filename, final GraphCache cache, final boolean shared)
+      throws IOException {
     file = TESTCASES.resolve(filename);
+    graph =
+        load(
+            file,
+            cache,
+            shared,
+            GraphCache.Format.DOT,
+            new GraphCache.Loader() {
+              @Override
+              public Graph<String> load(final Path file) throws IOException {
+                return DotGraphLoader.load(file);
+              }
+            });
+  }
 
-    final GraphParser parser = new GraphParser(new FileInputStream(file.toFile()));
+  /**
+   * Creates a new graph calculator for a graph that has already been loaded.
+   *
+   * @param file The file the graph was loaded from.
+   * @param graph The graph.
+   */
+  private GraphCalculator(final Path file, final Graph<String> graph) {
+    this.file = file;
+    this.graph = graph;
+  }
 
-    this.verticies = parser.getNodes().values();
-    this.edges = parser.getEdges().values();
+  /**
+   * Creates a new graph calculator from a binary snapshot saved by {@link #saveSnapshot(String)}.
+   *
+   * @param filename The name of the snapshot to read.
+   * @param cache The cache of loaded graphs, or null to always load the file.
+   * @param shared If the cached graph is shared with other clients, so is only queried through a
+   *     session of its own, see {@link Graph#newSession()}.
+   * @return The graph calculator.
+   * @throws FileNotFoundException If the file does not exist.
+   * @throws IOException If the file cannot be read.
+   * @throws IllegalArgumentException If the file is not a valid snapshot.
+   */
+  public static GraphCalculator openSnapshot(
+      final String filename, final GraphCache cache, final boolean shared) throws IOException {
+    final Path file = TESTCASES.resolve(filename);
+
+    return new GraphCalculator(
+        file,
+        load(
+            file,
+            cache,
+            shared,
+            GraphCache.Format.SNAPSHOT,
+            new GraphCache.Loader() {
+              @Override
+              public Graph<String> load(final Path file) throws IOException {
+                return GraphSnapshot.open(file);
+              }
+            }));
+  }
 
-    final Set<String> verticies = new HashSet<>();
+  /**
+   * Loads the graph in a file, through the cache if there is one.
+   *
+   * @param file The file to load.
+   * @param cache The cache of loaded graphs, or null to always load the file.
+   * @param shared If the graph should be queried through a session of its own.
+   * @param format The format the loader reads the file as.
+   * @param loader Reads the graph from the file.
+   * @return The graph in the file, or a session of it if it is shared.
+   * @throws FileNotFoundException If the file does not exist.
+   * @throws IOException If the file cannot be read.
+   */
+  private static Graph<String> load(
+      final Path file,
+      final GraphCache cache,
+      final boolean shared,
+      final GraphCache.Format format,
+      final GraphCache.Loader loader)
+      throws IOException {
+    try {
+      final Graph<String> graph =
+          cache == null ? loader.load(file) : cache.get(file, format, loader);
+
+      return shared ? graph.newSession() : graph;
+    } catch (final NoSuchFileException e) {
+      throw new FileNotFoundException(e.getMessage());
+    }
+  }
 
-    for (final GraphNode node : this.verticies) {
-      verticies.add(node.getId());
+  /**
+   * Saves the graph as a binary snapshot that can be opened again with {@link
+   * #openSnapshot(String, GraphCache, boolean)}.
+   *
+   * @param filename The name of the snapshot to write.
+   * @return If the snapshot was saved.
+   */
+  public boolean saveSnapshot(final String filename) {
+    try {
+      GraphSnapshot.save(graph, TESTCASES.resolve(filename));
+      MessageCli.SNAPSHOT_SAVED.printMessage(out, filename);
+      return true;
+    } catch (final IOException e) {
+      MessageCli.SNAPSHOT_NOT_SAVED.printMessage(out, filename);
+      return false;
     }
+  }
 
-    final Set<Edge<String>> edges = new HashSet<>();
+  /**
+   * Sets the number of threads used to check the properties of the graph.
+   *
+   * @param parallelism The number of threads, 1 to check on a single thread.
+   */
+  public void setParallelism(final int parallelism) {
+    graph.setParallelism(parallelism);
+  }
 
-    for (final GraphEdge edge : this.edges) {
-      edges.add(new Edge<>(edge.getNode1().getId(), edge.getNode2().getId()));
+  /**
+   * Gets the counts of the work done on the graph so far.
+   *
+   * @return The work counter of the graph.
+   */
+  public WorkCounter getWorkCounter() {
+    return graph.getWorkCounter();
+  }
+
+  /**
+   * Sets if checking a property also prints why it does not hold.
+   *
+   * @param showCounterexamples If the counterexamples are printed.
+   */
+  public void setShowCounterexamples(final boolean showCounterexamples) {
+    this.showCounterexamples = showCounterexamples;
+  }
+
+  /**
+   * Sets the stream that results are printed to, which is the console unless set.
+   *
+   * @param out The stream to print to.
+   */
+  public void setOutput(final PrintStream out) {
+    this.out = out;
+  }
+
+  /**
+   * Sets where lists of verticies are written.
+   *
+   * @param resultFile The file to append them to, or null to print them.
+   */
+  public void setResultFile(final Path resultFile) {
+    this.resultFile = resultFile;
+  }
+
+  /**
+   * Adds a vertex to the graph. The graph is changed in memory only, the file is left as it is.
+   *
+   * @param vertex The vertex to add.
+   */
+  public void addVertex(final String vertex) {
+    if (graph.addVertex(vertex)) {
+      MessageCli.VERTEX_ADDED.printMessage(out, vertex);
+    } else {
+      MessageCli.VERTEX_EXISTS.printMessage(out, vertex);
     }
+  }
 
-    graph = new Graph<>(verticies, edges);
+  /**
+   * Adds an edge to the graph, adding either vertex first if it is not in the graph.
+   *
+   * @param source The source vertex.
+   * @param destination The destination vertex.
+   */
+  public void addEdge(final String source, final String destination) {
+    if (graph.addEdge(source, destination)) {
+      MessageCli.EDGE_ADDED.printMessage(out, source, destination);
+    } else {
+      MessageCli.EDGE_EXISTS.printMessage(out, source, destination);
+    }
+  }
+
+  /**
+   * Removes an edge from the graph.
+   *
+   * @param source The source vertex.
+   * @param destination The destination vertex.
+   * @return If the edge was in the graph.
+   */
+  public boolean removeEdge(final String source, final String destination) {
+    if (!graph.removeEdge(source, destination)) {
+      MessageCli.EDGE_NOT_FOUND.printMessage(out, source, destination);
+      return false;
+    }
+    MessageCli.EDGE_REMOVED.printMessage(out, source, destination);
+    return true;
   }
 
   /** Prints the filename of the test case that is loaded. */
   public void printInfo() {
-    MessageCli.INFO.printMessage(TESTCASES.relativize(file).toString());
+    MessageCli.INFO.printMessage(out, TESTCASES.relativize(file).toString());
   }
 
   /** Prints the set of verticies and edges in the graph. */
   public void printVerticiesEdges() {
+    printVerticiesEdges(graph, out);
+  }
+
+  /**
+   * Prints the set of verticies and edges in a graph.
+   *
+   * @param graph The graph to print.
+   * @param out The stream to print to.
+   */
+  private static <T extends Comparable<T>> void printVerticiesEdges(
+      final Graph<T> graph, final PrintStream out) {
     final StringBuilder sb = new StringBuilder("Verticies:").append(System.lineSeparator());
 
     // Vertically print each vertex.
-    for (final GraphNode node : verticies) {
-      sb.append("\t").append(node.getId()).append(System.lineSeparator());
+    for (final T vertex : graph.getVerticies()) {
+      sb.append("\t").append(vertex).append(System.lineSeparator());
     }
 
     sb.append(System.lineSeparator()).append("Edges:").append(System.lineSeparator());
 
     // Vertically print each edge between verticies.
-    for (final GraphEdge edge : edges) {
+    for (final Edge<T> edge : graph.getEdges()) {
       sb.append("\t")
-          .append(edge.getNode1().getId())
+          .append(edge.getSource())
           .append(" -> ")
-          .append(edge.getNode2().getId())
+          .append(edge.getDestination())
           .append(System.lineSeparator());
     }
 
-    System.out.print(sb.toString());
+    out.print(sb.toString());
   }
 
   /** Prints the set of verticies in the graph that are root verticies. */
   public void printRoots() {
-    System.out.println(graph.getRoots());
+    printList(graph.getRoots());
   }
 
   /** Prints if the set of verticies in the graph exhibit the reflexivity property. */
   public void printReflexitivity() {
-    MessageCli.GRAPH_REFLEXIVE.printMessage(prefixNot(graph.isReflexive()));
+    if (!showCounterexamples) {
+      MessageCli.GRAPH_REFLEXIVE.printMessage(out, prefixNot(graph.isReflexive()));
+      return;
+    }
+    final List<String> counterexample = graph.findReflexivityCounterexample();
+    MessageCli.GRAPH_REFLEXIVE.printMessage(out, prefixNot(counterexample.isEmpty()));
+    printReflexivityCounterexample(counterexample);
   }
 
   /** Prints if the set of edges in the graph exhibit the symmetric property. */
   public void printSymmetry() {
-    MessageCli.GRAPH_SYMMETRIC.printMessage(prefixNot(graph.isSymmetric()));
+    if (!showCounterexamples) {
+      MessageCli.GRAPH_SYMMETRIC.printMessage(out, prefixNot(graph.isSymmetric()));
+      return;
+    }
+    final List<String> counterexample = graph.findSymmetryCounterexample();
+    MessageCli.GRAPH_SYMMETRIC.printMessage(out, prefixNot(counterexample.isEmpty()));
+    printSymmetryCounterexample(counterexample);
   }
 
   /** Prints if the set of edges in the graph exhibit transitivity. */
   public void printTransitivity() {
-    MessageCli.GRAPH_TRANSITIVE.printMessage(prefixNot(graph.isTransitive()));
+    if (!showCounterexamples) {
+      MessageCli.GRAPH_TRANSITIVE.printMessage(out, prefixNot(graph.isTransitive()));
+      return;
+    }
+    final List<String> counterexample = graph.findTransitivityCounterexample();
+    MessageCli.GRAPH_TRANSITIVE.printMessage(out, prefixNot(counterexample.isEmpty()));
+    printTransitivityCounterexample(counterexample);
   }
 
   /** Prints if the set of edges in the graph exhibit anti-symmetry. */
   public void printAntiSymmetry() {
-    MessageCli.GRAPH_ANTI_SYMMETRIC.printMessage(prefixNot(graph.isAntiSymmetric()));
+    if (!showCounterexamples) {
+      MessageCli.GRAPH_ANTI_SYMMETRIC.printMessage(out, prefixNot(graph.isAntiSymmetric()));
+      return;
+    }
+    final List<String> counterexample = graph.findAntiSymmetryCounterexample();
+    MessageCli.GRAPH_ANTI_SYMMETRIC.printMessage(out, prefixNot(counterexample.isEmpty()));
+    if (!counterexample.isEmpty()) {
+      MessageCli.COUNTEREXAMPLE_ANTI_SYMMETRIC.printMessage(
+          out, counterexample.get(0), counterexample.get(1));
+    }
   }
 
-  /** Prints if the entire graph is considered an equivalence relation. */
+  /**
+   * Prints if the entire graph is considered an equivalence relation. A counterexample is given for
+   * the first of reflexivity, symmetry and transitivity that does not hold.
+   */
   public void printEquivalence() {
-    MessageCli.GRAPH_EQUIVALENCE.printMessage(prefixNot(graph.isEquivalence()));
+    if (!showCounterexamples) {
+      MessageCli.GRAPH_EQUIVALENCE.printMessage(out, prefixNot(graph.isEquivalence()));
+      return;
+    }
+    final List<String> reflexivity = graph.findReflexivityCounterexample();
+    final List<String> symmetry =
+        reflexivity.isEmpty() ? graph.findSymmetryCounterexample() : reflexivity;
+    final List<String> transitivity =
+        symmetry.isEmpty() ? graph.findTransitivityCounterexample() : symmetry;
+
+    MessageCli.GRAPH_EQUIVALENCE.printMessage(out, prefixNot(transitivity.isEmpty()));
+    if (!reflexivity.isEmpty()) {
+      printReflexivityCounterexample(reflexivity);
+    } else if (!symmetry.isEmpty()) {
+      printSymmetryCounterexample(symmetry);
+    } else {
+      printTransitivityCounterexample(transitivity);
+    }
+  }
+
+  /**
+   * Prints the vertex without an edge to itself, if there is one.
+   *
+   * @param counterexample The vertex, or an empty list.
+   */
+  private void printReflexivityCounterexample(final List<String> counterexample) {
+    if (!counterexample.isEmpty()) {
+      MessageCli.COUNTEREXAMPLE_REFLEXIVE.printMessage(out, counterexample.get(0));
+    }
+  }
+
+  /**
+   * Prints the edge without an edge back, if there is one.
+   *
+   * @param counterexample The source and destination of the edge, or an empty list.
+   */
+  private void printSymmetryCounterexample(final List<String> counterexample) {
+    if (!counterexample.isEmpty()) {
+      MessageCli.COUNTEREXAMPLE_SYMMETRIC.printMessage(
+          out, counterexample.get(0), counterexample.get(1));
+    }
+  }
+
+  /**
+   * Prints the path of two edges without an edge from its start to its end, if there is one.
+   *
+   * @param counterexample The verticies along the path, or an empty list.
+   */
+  private void printTransitivityCounterexample(final List<String> counterexample) {
+    if (!counterexample.isEmpty()) {
+      final String start = counterexample.get(0);
+      final String end = counterexample.get(2);
+      MessageCli.COUNTEREXAMPLE_TRANSITIVE.printMessage(
+          out, start, counterexample.get(1), end, start, end);
+    }
   }
 
   /**
@@ -124,27 +408,124 @@ public class GraphCalculator {
   public void printEquivalenceClass(final String vertex) {
     final Object[] equivalenceClass = graph.getEquivalenceClass(vertex).toArray();
     Arrays.sort(equivalenceClass);
-    System.out.println(Arrays.toString(equivalenceClass));
+    printList(Arrays.asList(equivalenceClass));
+  }
+
+  /** Prints every equivalence class of the graph, each in numeric order. */
+  public void printEquivalenceClasses() {
+    printList(graph.getEquivalenceClasses());
+  }
+
+  /** Prints every strongly connected component of the graph, in order of their ids. */
+  public void printComponents() {
+    printList(graph.getStronglyConnectedComponents());
+  }
+
+  /** Prints the size of every strongly connected component of the graph, in order of their ids. */
+  public void printComponentSizes() {
+    printList(graph.getComponentSizes());
+  }
+
+  /**
+   * Prints the id and size of the strongly connected component holding the given vertex.
+   *
+   * @param vertex The vertex.
+   * @return If the vertex is in the graph.
+   */
+  public boolean printComponentOf(final String vertex) {
+    final int id = graph.getComponentId(vertex);
+
+    if (id == -1) {
+      MessageCli.VERTEX_NOT_FOUND.printMessage(out, vertex);
+      return false;
+    }
+    MessageCli.COMPONENT_OF.printMessage(
+        out, vertex, String.valueOf(id), String.valueOf(graph.getComponentSizes().get(id)));
+    return true;
+  }
+
+  /**
+   * Prints the condensation of the graph, with a vertex for each strongly connected component
+   * named by its id.
+   */
+  public void printCondensation() {
+    printVerticiesEdges(graph.getCondensation(), out);
   }
 
   /** Prints the search order of an iterative breadth first search. */
   public void printIterativeBreadthFirstSearch() {
-    System.out.println(Arrays.toString(graph.iterativeBreadthFirstSearch().toArray()));
+    printList(graph.iterativeBreadthFirstSearch());
   }
 
   /** Prints the search order of an iterative depth first search. */
   public void printDepthFirstSearch() {
-    System.out.println(Arrays.toString(graph.iterativeDepthFirstSearch().toArray()));
+    printList(graph.iterativeDepthFirstSearch());
+  }
+
+  /**
+   * Prints the first verticies in the search order of a breadth first search, stopping the search
+   * as soon as it has found them.
+   *
+   * @param limit The most verticies to print.
+   */
+  public void printBreadthFirstSearch(final int limit) {
+    printList(take(graph.breadthFirstIterator(), limit));
+  }
+
+  /**
+   * Prints the first verticies in the search order of a depth first search, stopping the search as
+   * soon as it has found them.
+   *
+   * @param limit The most verticies to print.
+   */
+  public void printDepthFirstSearch(final int limit) {
+    printList(take(graph.depthFirstIterator(), limit));
+  }
+
+  /**
+   * Takes the first verticies from a lazy search.
+   *
+   * @param search The search.
+   * @param limit The most verticies to take.
+   * @return The verticies, in the order the search visits them.
+   */
+  private static List<String> take(final Iterator<String> search, final int limit) {
+    final List<String> taken = new ArrayList<>();
+
+    while (taken.size() < limit && search.hasNext()) {
+      taken.add(search.next());
+    }
+    return taken;
   }
 
   /** Prints the search order of a recursive breadth first search. */
   public void printRecursiveBreadthFirstSearch() {
-    System.out.println(Arrays.toString(graph.recursiveBreadthFirstSearch().toArray()));
+    printList(graph.recursiveBreadthFirstSearch());
   }
 
   /** Prints the search order of a recursive depth first search. */
   public void printRecursiveDepthFirstSearch() {
-    System.out.println(Arrays.toString(graph.recursiveDepthFirstSearch().toArray()));
+    printList(graph.recursiveDepthFirstSearch());
+  }
+
+  /** Prints the search order of a breadth first search that expands each level in parallel. */
+  public void printParallelBreadthFirstSearch() {
+    printList(graph.parallelBreadthFirstSearch());
+  }
+
+  /**
+   * Prints the items as a list, or appends them to the result file if one is set, streaming them
+   * out rather than building the whole line first.
+   *
+   * @param items The items to print.
+   */
+  private void printList(final Iterable<?> items) {
+    try (ResultWriter writer =
+        resultFile == null ? ResultWriter.toStream(out) : ResultWriter.toFile(resultFile)) {
+      writer.writeList(items);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
   }
 
   /**
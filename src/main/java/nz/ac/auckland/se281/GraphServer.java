@@ -0,0 +1,229 @@
+package nz.ac.auckland.se281;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Answers commands from many clients at once over a local socket, so a graph is only loaded and
+ * parsed once however many queries are run on it. Each connection gets a session of its own, as
+ * if it were a separate {@link Main}, but every session opens its graphs from the same {@link
+ * GraphCache}, so clients querying the same file share one graph and everything computed from it.
+ * Each session queries the graph through a session of the graph of its own, so the parallelism it
+ * sets and the work its statistics count are its own, and what it prints goes only to its own
+ * client. Commands that would change the graph are refused.
+ *
+ * <p>A client sends one command per line. The server answers each with the lines the command
+ * printed, then a line holding just a dot. Lines of output that start with a dot have another dot
+ * put in front of them, so the end of an answer can always be told apart from the answer itself.
+ */
+public class GraphServer implements Closeable {
+  private static final int BUFFER_BYTES = 1 << 16;
+
+  private final ServerSocketChannel channel;
+
+  private final Path socketFile;
+
+  private final GraphCache cache = new GraphCache(Runtime.getRuntime().maxMemory() / 4);
+
+  private final LatencyRecorder latency = new LatencyRecorder();
+
+  private final ExecutorService sessions;
+
+  /**
+   * Create a new server listening on the given channel.
+   *
+   * @param channel The bound channel to accept connections from.
+   * @param socketFile The file of the Unix domain socket, or null for a TCP socket.
+   */
+  private GraphServer(final ServerSocketChannel channel, final Path socketFile) {
+    this.channel = channel;
+    this.socketFile = socketFile;
+    this.sessions =
+        Executors.newCachedThreadPool(
+            new ThreadFactory() {
+              private final AtomicInteger count = new AtomicInteger();
+
+              @Override
+              public Thread newThread(final Runnable runnable) {
+                final Thread thread =
+                    new Thread(runnable, "graph-session-" + count.incrementAndGet());
+                // sessions never keep the server running once it has stopped accepting them
+                thread.setDaemon(true);
+                return thread;
+              }
+            });
+  }
+
+  /**
+   * Open a server on the loopback interface if the address is a port number, or otherwise on a
+   * Unix domain socket at the address as a path.
+   *
+   * @param address The port or path to listen on.
+   * @return The server.
+   * @throws IOException If the socket cannot be bound.
+   */
+  public static GraphServer open(final String address) throws IOException {
+    int port = -1;
+
+    try {
+      port = Integer.parseInt(address);
+    } catch (final NumberFormatException e) {
+      // not a port, so a path
+    }
+
+    if (port >= 0) {
+      final ServerSocketChannel channel = ServerSocketChannel.open();
+      channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+      return new GraphServer(channel, null);
+    }
+    final Path socketFile = Path.of(address);
+    final ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    channel.bind(UnixDomainSocketAddress.of(socketFile));
+    return new GraphServer(channel, socketFile);
+  }
+
+  /**
+   * Get the address the server is listening on, which has the port chosen if 0 was asked for.
+   *
+   * @return The address.
+   * @throws IOException If the server has been closed.
+   */
+  public SocketAddress getAddress() throws IOException {
+    return channel.getLocalAddress();
+  }
+
+  /**
+   * Get the latency of the requests answered so far.
+   *
+   * @return The latency recorder.
+   */
+  public LatencyRecorder getLatency() {
+    return latency;
+  }
+
+  /**
+   * Accept connections until the server is closed, answering each on a thread of its own.
+   *
+   * @throws IOException If a connection cannot be accepted.
+   */
+  public void serve() throws IOException {
+    try {
+      while (true) {
+        final SocketChannel client = channel.accept();
+        sessions.execute(
+            new Runnable() {
+              @Override
+              public void run() {
+                answer(client);
+              }
+            });
+      }
+    } catch (final ClosedChannelException e) {
+      // the server was closed
+    }
+  }
+
+  /**
+   * Answer the commands sent over a connection until the client sends EXIT or disconnects.
+   *
+   * @param client The connection.
+   */
+  private void answer(final SocketChannel client) {
+    final ByteArrayOutputStream printed = new ByteArrayOutputStream();
+    final PrintStream printer = new PrintStream(printed, false, StandardCharsets.UTF_8);
+    final Main session = new Main(null, cache, latency, printer);
+
+    try (client;
+        BufferedReader reader =
+            new BufferedReader(
+                new InputStreamReader(Channels.newInputStream(client), StandardCharsets.UTF_8));
+        OutputStream out =
+            new BufferedOutputStream(Channels.newOutputStream(client), BUFFER_BYTES)) {
+      String command = reader.readLine();
+
+      while (command != null) {
+        if (!command.isBlank()) {
+          final long start = System.nanoTime();
+          printed.reset();
+          final boolean more = session.processCommand(command);
+          printer.flush();
+          writeAnswer(printed, out);
+          latency.record(System.nanoTime() - start);
+          if (!more) {
+            break;
+          }
+        }
+        command = reader.readLine();
+      }
+    } catch (final IOException e) {
+      // the client went away, and the other sessions carry on
+    }
+  }
+
+  /**
+   * Write the output of a command to the client, with a dot in front of every line that starts
+   * with one, and a line holding just a dot after it.
+   *
+   * @param printed The output of the command.
+   * @param out The stream to the client.
+   * @throws IOException If the client cannot be written to.
+   */
+  static void writeAnswer(final ByteArrayOutputStream printed, final OutputStream out)
+      throws IOException {
+    final byte[] bytes = printed.toByteArray();
+    int from = 0;
+
+    // writes the output in runs, breaking them only where a dot is added
+    for (int i = 0; i < bytes.length; i++) {
+      if (bytes[i] == '.' && (i == 0 || bytes[i - 1] == '\n')) {
+        out.write(bytes, from, i - from);
+        out.write('.');
+        from = i;
+      }
+    }
+    out.write(bytes, from, bytes.length - from);
+    if (bytes.length > 0 && bytes[bytes.length - 1] != '\n') {
+      out.write('\n');
+    }
+    out.write('.');
+    out.write('\n');
+    out.flush();
+  }
+
+  /**
+   * Stop accepting connections, removing the file of a Unix domain socket. Sessions already open
+   * are left to finish.
+   *
+   * @throws IOException If the socket cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+    sessions.shutdown();
+    if (socketFile != null) {
+      Files.deleteIfExists(socketFile);
+    }
+  }
+}
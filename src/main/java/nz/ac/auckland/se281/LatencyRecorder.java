@@ -0,0 +1,139 @@
+package nz.ac.auckland.se281;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records the latency of requests from many threads at once, without locking, in a histogram with
+ * 16 buckets for each power of two nanoseconds. Percentiles are read back as the upper bound of
+ * their bucket, so are never more than about 6% above the true value.
+ */
+public class LatencyRecorder {
+  private static final int SUB_BUCKET_BITS = 4;
+
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+
+  private final AtomicLong count = new AtomicLong();
+
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Record the latency of one request.
+   *
+   * @param nanos The latency in nanoseconds.
+   */
+  public void record(final long nanos) {
+    final long latency = Math.max(0, nanos);
+
+    counts.incrementAndGet(bucketOf(latency));
+    count.incrementAndGet();
+    long current = max.get();
+    while (latency > current && !max.compareAndSet(current, latency)) {
+      current = max.get();
+    }
+  }
+
+  /**
+   * Find the bucket of a latency. Latencies under 16 nanoseconds each have a bucket, and every
+   * power of two above that is split into 16 buckets of equal width.
+   *
+   * @param nanos The latency in nanoseconds.
+   * @return The bucket.
+   */
+  private static int bucketOf(final long nanos) {
+    if (nanos < SUB_BUCKETS) {
+      return (int) nanos;
+    }
+    final int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+    final int shift = exponent - SUB_BUCKET_BITS;
+    return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((nanos >>> shift) & (SUB_BUCKETS - 1));
+  }
+
+  /**
+   * Find the largest latency that falls in a bucket.
+   *
+   * @param bucket The bucket.
+   * @return The latency in nanoseconds.
+   */
+  private static long upperBoundOf(final int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    final int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+    final long lower = (long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << shift;
+    return lower + (1L << shift) - 1;
+  }
+
+  /**
+   * Get the number of requests recorded.
+   *
+   * @return The number of requests.
+   */
+  public long getCount() {
+    return count.get();
+  }
+
+  /**
+   * Get the longest latency recorded.
+   *
+   * @return The latency in nanoseconds, or 0 if none has been recorded.
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Get the latency that the given fraction of requests took no longer than.
+   *
+   * @param fraction The fraction of requests, such as 0.99 for the 99th percentile.
+   * @return The latency in nanoseconds, or 0 if none has been recorded.
+   */
+  public long getPercentile(final double fraction) {
+    final long total = count.get();
+    final long rank = Math.max(1, (long) Math.ceil(fraction * total));
+    long seen = 0;
+
+    if (total == 0) {
+      return 0;
+    }
+    for (int bucket = 0; bucket < counts.length(); bucket++) {
+      seen += counts.get(bucket);
+      if (seen >= rank) {
+        // the bucket may be wider than the slowest request in it
+        return Math.min(upperBoundOf(bucket), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  /**
+   * Print the number of requests and their latency percentiles.
+   *
+   * @param out The stream to print to.
+   */
+  public void print(final PrintStream out) {
+    final long total = getCount();
+
+    MessageCli.LATENCY_PERCENTILES.printMessage(
+        out,
+        String.valueOf(total),
+        total == 1 ? "" : "s",
+        formatMicros(getPercentile(0.5)),
+        formatMicros(getPercentile(0.9)),
+        formatMicros(getPercentile(0.99)),
+        formatMicros(getMax()));
+  }
+
+  /**
+   * Format nanoseconds as microseconds to one decimal place.
+   *
+   * @param nanos The time in nanoseconds.
+   * @return The formatted time.
+   */
+  private static String formatMicros(final long nanos) {
+    return String.format("%.1f", nanos / 1e3);
+  }
+}
@@ -1,18 +1,124 @@
 package nz.ac.auckland.se281;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.util.Scanner;
 
 /**
- * The entry point of the graph calculator command line interface.
- *
- * <p>You should not modify this class.
+ * The entry point of the graph calculator command line interface, which runs commands typed at a
+ * prompt, read from a script, or sent by the clients of a query server.
  */
 public class Main {
   private static final String COMMAND_PREFIX = "graph-calculator> ";
 
+  private static final String SCRIPT_FLAG = "--script";
+
+  private static final String SERVER_FLAG = "--server";
+
+  private static final int SCRIPT_BUFFER_BYTES = 1 << 16;
+
+  /**
+   * Starts the interactive command line interface, or with `--script [FILE]` runs the commands in
+   * the file, or on standard input if no file is given, without prompting. With `--server ADDRESS`
+   * it instead answers commands from clients on a local port or Unix domain socket, see {@link
+   * GraphServer}. The process exits with the status of {@link #launch(String[])}.
+   *
+   * @param args The command line arguments.
+   */
   public static void main(final String[] args) {
-    new Main(new Scanner(System.in)).start();
+    final int status = launch(args);
+
+    if (status != 0) {
+      System.exit(status);
+    }
+  }
+
+  /**
+   * Runs the calculator in the mode the command line arguments ask for, returning once it is done.
+   *
+   * @param args The command line arguments.
+   * @return The exit status, 0 if every command succeeded, 1 if a command of a script failed, 2 if
+   *     the arguments are wrong or the script or server could not be started.
+   */
+  public static int launch(final String[] args) {
+    if (args.length == 0) {
+      new Main(new Scanner(System.in)).start();
+      return 0;
+    }
+
+    if (args[0].equals(SERVER_FLAG) && args.length == 2) {
+      try {
+        runServer(GraphServer.open(args[1]));
+      } catch (final IOException e) {
+        System.err.println("Error: could not run server: " + e.getMessage());
+        return 2;
+      }
+      return 0;
+    }
+
+    if (!args[0].equals(SCRIPT_FLAG) || args.length > 2) {
+      System.err.println("Usage: " + SCRIPT_FLAG + " [FILE] | " + SERVER_FLAG + " PORT|PATH");
+      return 2;
+    }
+    return runScript(args.length == 2 ? Path.of(args[1]) : null);
+  }
+
+  /**
+   * Runs a script of commands, one per line, with all output buffered through a single stream.
+   *
+   * @param script The file of commands, or null to read them from standard input.
+   * @return The exit status, 0 if every command succeeded, 1 if any failed, 2 if the script could
+   *     not be read.
+   */
+  public static int runScript(final Path script) {
+    final PrintStream out =
+        new PrintStream(new BufferedOutputStream(System.out, SCRIPT_BUFFER_BYTES), false);
+
+    try (BufferedReader reader =
+        script == null
+            ? new BufferedReader(new InputStreamReader(System.in), SCRIPT_BUFFER_BYTES)
+            : Files.newBufferedReader(script)) {
+      final Main main =
+          new Main(null, new GraphCache(Runtime.getRuntime().maxMemory() / 4), null, out);
+
+      return main.run(reader) ? 0 : 1;
+    } catch (final IOException e) {
+      System.err.println("Error: could not read script: " + e.getMessage());
+      return 2;
+    } finally {
+      out.flush();
+    }
+  }
+
+  /**
+   * Runs a query server until the process is stopped, closing it on the way out so the file of a
+   * Unix domain socket is removed.
+   *
+   * @param server The server to run.
+   * @throws IOException If a connection cannot be accepted.
+   */
+  private static void runServer(final GraphServer server) throws IOException {
+    Runtime.getRuntime()
+        .addShutdownHook(
+            new Thread() {
+              @Override
+              public void run() {
+                try {
+                  server.close();
+                } catch (final IOException e) {
+                  // the process is exiting anyway
+                }
+              }
+            });
+    MessageCli.SERVER_LISTENING.printMessage(server.getAddress().toString());
+    server.serve();
   }
 
   /**
@@ -44,37 +150,94 @@ public class Main {
 
   private final Scanner scanner;
 
+  private final GraphCache cache;
+
+  private final LatencyRecorder latency;
+
+  private final PrintStream out;
+
+  private final CommandStats stats = new CommandStats();
+
   private GraphCalculator calculator;
 
+  private int parallelism = 1;
+
+  private boolean counterexamples;
+
+  private Path resultFile;
+
+  private boolean failed;
+
   /**
    * Create a new command line interface.
    *
    * @param scanner The scanner to read user input from.
    */
   public Main(final Scanner scanner) {
+    this(scanner, new GraphCache(Runtime.getRuntime().maxMemory() / 4), null, System.out);
+  }
+
+  /**
+   * Create a new session of a query server, which opens graphs from a cache shared with the other
+   * sessions. The graphs are shared, so commands that would change them are refused.
+   *
+   * @param scanner The scanner to read user input from, or null if commands are passed in.
+   * @param cache The cache to open graphs from.
+   * @param latency The latency of the requests to the server, or null if not run by a server.
+   * @param out The stream to print the answers to.
+   */
+  public Main(
+      final Scanner scanner,
+      final GraphCache cache,
+      final LatencyRecorder latency,
+      final PrintStream out) {
     this.scanner = scanner;
+    this.cache = cache;
+    this.latency = latency;
+    this.out = out;
   }
 
   /** Process commands from the user for the graph calculator command line interface. */
   public void start() {
-    System.out.println(help());
+    out.println(help());
 
     String command;
 
     // Prompt and process commands until the exit command.
     do {
-      System.out.print(COMMAND_PREFIX);
+      out.print(COMMAND_PREFIX);
       command = scanner.nextLine().trim();
     } while (processCommand(command));
   }
 
+  /**
+   * Process the commands read from a script, without printing the help menu or prompt, until the
+   * exit command or the end of the script. Blank lines are skipped.
+   *
+   * @param reader The script to read commands from.
+   * @return If every command succeeded.
+   * @throws IOException If the script cannot be read.
+   */
+  public boolean run(final BufferedReader reader) throws IOException {
+    String command = reader.readLine();
+
+    while (command != null) {
+      command = command.trim();
+      if (!command.isEmpty() && !processCommand(command)) {
+        break;
+      }
+      command = reader.readLine();
+    }
+    return !failed;
+  }
+
   /**
    * Execute a command entered by the user and determine if more commands are expected.
    *
    * @param input The command entered by the user.
    * @return If the program should continue to wait for another command.
    */
-  private boolean processCommand(String input) {
+  boolean processCommand(String input) {
     // Remove whitespace at the beginning and end of the input.
     input = input.trim();
 
@@ -89,7 +252,7 @@ public class Main {
       // Command names correspond to the enum names.
       command = Command.valueOf(commandStr);
     } catch (final Exception e) {
-      MessageCli.COMMAND_NOT_FOUND.printMessage(commandStr);
+      printError(MessageCli.COMMAND_NOT_FOUND, commandStr);
       return true;
     }
 
@@ -97,7 +260,7 @@ public class Main {
     if (!checkArgs(command, args)) {
       final String numCommandArgs = String.valueOf(command.getNumArgs());
       final String plural = command.getNumArgs() > 1 ? "s" : "";
-      MessageCli.WRONG_ARGUMENT_COUNT.printMessage(numCommandArgs, plural, commandStr);
+      printError(MessageCli.WRONG_ARGUMENT_COUNT, numCommandArgs, plural, commandStr);
       return true;
     }
 
@@ -106,26 +269,123 @@ public class Main {
     // or get help if there is no file.
     if (calculator == null
         && command != Command.OPEN_FILE
+        && command != Command.OPEN_SNAPSHOT
+        && command != Command.SET_PARALLELISM
+        && command != Command.SHOW_COUNTEREXAMPLES
+        && command != Command.STATS
+        && command != Command.EXPORT_STATS
+        && command != Command.LATENCY
+        && command != Command.OUTPUT_FILE
         && command != Command.EXIT
         && command != Command.HELP) {
-      MessageCli.FILE_NOT_OPEN.printMessage();
+      printError(MessageCli.FILE_NOT_OPEN);
       return true;
     }
 
+    // graphs opened by a server are shared by every session, so must not change
+    if (latency != null
+        && (command == Command.ADD_VERTEX
+            || command == Command.ADD_EDGE
+            || command == Command.REMOVE_EDGE)) {
+      printError(MessageCli.SERVER_READ_ONLY, commandStr);
+      return true;
+    }
+
+    final CommandStats.Sample sample = stats.start(calculator);
+    final boolean more = execute(command, args);
+    stats.record(command, sample, calculator);
+    return more;
+  }
+
+  /**
+   * Execute a command that has the right number of arguments and can run with or without an open
+   * file as it needs.
+   *
+   * @param command The command to execute.
+   * @param args The command and its arguments as entered by the user.
+   * @return If the program should continue to wait for another command.
+   */
+  private boolean execute(final Command command, final String[] args) {
     switch (command) {
       case OPEN_FILE:
         final String filename = args[1];
 
         try {
-          calculator = new GraphCalculator(filename);
-          MessageCli.OPENED_FILE_SUCCESSFULLY.printMessage(filename);
+          calculator = new GraphCalculator(filename, cache, latency != null);
+          calculator.setParallelism(parallelism);
+          calculator.setShowCounterexamples(counterexamples);
+          calculator.setResultFile(resultFile);
+          calculator.setOutput(out);
+          MessageCli.OPENED_FILE_SUCCESSFULLY.printMessage(out, filename);
+        } catch (FileNotFoundException e) {
+          printError(MessageCli.FILE_NOT_FOUND, filename);
+        } catch (IOException | IllegalArgumentException e) {
+          // such as a directory, which exists but cannot be read as a graph
+          printError(MessageCli.FILE_INVALID, filename);
+        }
+        break;
+      case OPEN_SNAPSHOT:
+        final String snapshot = args[1];
+
+        try {
+          calculator = GraphCalculator.openSnapshot(snapshot, cache, latency != null);
+          calculator.setParallelism(parallelism);
+          calculator.setShowCounterexamples(counterexamples);
+          calculator.setResultFile(resultFile);
+          calculator.setOutput(out);
+          MessageCli.OPENED_FILE_SUCCESSFULLY.printMessage(out, snapshot);
         } catch (FileNotFoundException e) {
-          MessageCli.FILE_NOT_FOUND.printMessage(filename);
+          printError(MessageCli.FILE_NOT_FOUND, snapshot);
+        } catch (IOException | IllegalArgumentException e) {
+          printError(MessageCli.SNAPSHOT_INVALID, snapshot);
+        }
+        break;
+      case SAVE_SNAPSHOT:
+        if (!calculator.saveSnapshot(args[1])) {
+          failed = true;
         }
         break;
       case INFO:
         calculator.printInfo();
         break;
+      case SET_PARALLELISM:
+        setParallelism(args[1]);
+        break;
+      case SHOW_COUNTEREXAMPLES:
+        setShowCounterexamples(args[1]);
+        break;
+      case STATS:
+        stats.print(out);
+        break;
+      case LATENCY:
+        if (latency == null) {
+          printError(MessageCli.SERVER_ONLY, command.toString());
+        } else {
+          latency.print(out);
+        }
+        break;
+      case EXPORT_STATS:
+        try {
+          stats.export(Path.of(args[1]));
+          MessageCli.STATS_EXPORTED.printMessage(out, args[1]);
+        } catch (final IOException | InvalidPathException e) {
+          printError(MessageCli.STATS_NOT_EXPORTED, args[1]);
+        }
+        break;
+      case OUTPUT_FILE:
+        setResultFile(args[1]);
+        break;
+      case ADD_VERTEX:
+        calculator.addVertex(args[1]);
+        break;
+      case ADD_EDGE:
+        calculator.addEdge(args[1], args[2]);
+        break;
+      case REMOVE_EDGE:
+        if (!calculator.removeEdge(args[1], args[2])) {
+          failed = true;
+        }
+        break;
       case LIST_VERTICIES_EDGES:
         calculator.printVerticiesEdges();
         break;
@@ -150,25 +410,59 @@ public class Main {
       case COMPUTE_EQUIVALENCE:
         calculator.printEquivalenceClass(args[1]);
         break;
+      case LIST_EQUIVALENCE_CLASSES:
+        calculator.printEquivalenceClasses();
+        break;
+      case LIST_COMPONENTS:
+        calculator.printComponents();
+        break;
+      case LIST_COMPONENT_SIZES:
+        calculator.printComponentSizes();
+        break;
+      case COMPUTE_COMPONENT:
+        if (!calculator.printComponentOf(args[1])) {
+          failed = true;
+        }
+        break;
+      case LIST_CONDENSATION:
+        calculator.printCondensation();
+        break;
       case GRAPH_SEARCH_IBFS:
         calculator.printIterativeBreadthFirstSearch();
         break;
       case GRAPH_SEARCH_IDFS:
         calculator.printDepthFirstSearch();
         break;
+      case GRAPH_SEARCH_IBFS_LIMIT:
+        final int breadthLimit = parseLimit(args[1]);
+
+        if (breadthLimit >= 0) {
+          calculator.printBreadthFirstSearch(breadthLimit);
+        }
+        break;
+      case GRAPH_SEARCH_IDFS_LIMIT:
+        final int depthLimit = parseLimit(args[1]);
+
+        if (depthLimit >= 0) {
+          calculator.printDepthFirstSearch(depthLimit);
+        }
+        break;
       case GRAPH_SEARCH_RBFS:
         calculator.printRecursiveBreadthFirstSearch();
         break;
       case GRAPH_SEARCH_RDFS:
         calculator.printRecursiveDepthFirstSearch();
         break;
+      case GRAPH_SEARCH_PBFS:
+        calculator.printParallelBreadthFirstSearch();
+        break;
       case EXIT:
-        MessageCli.END.printMessage();
+        MessageCli.END.printMessage(out);
 
         // Signal that the program should exit.
         return false;
       case HELP:
-        System.out.println(help());
+        out.println(help());
         break;
     }
 
@@ -176,6 +470,112 @@ public class Main {
     return true;
   }
 
+  /**
+   * Print an error message, and remember that a command failed.
+   *
+   * @param message The error message.
+   * @param args The arguments to fill in the message.
+   */
+  private void printError(final MessageCli message, final String... args) {
+    message.printMessage(out, args);
+    failed = true;
+  }
+
+  /**
+   * Set the file that lists of results are appended to, for the open graph and any opened later.
+   *
+   * @param filename The file entered by the user, or "-" to print results instead.
+   */
+  private void setResultFile(final String filename) {
+    if (filename.equals("-")) {
+      resultFile = null;
+    } else {
+      final Path file = Path.of(filename);
+      // opens the file once now so a bad path is reported here rather than by a later command
+      try {
+        ResultWriter.toFile(file).close();
+      } catch (final IOException | InvalidPathException e) {
+        printError(MessageCli.OUTPUT_INVALID, filename);
+        return;
+      }
+      resultFile = file;
+    }
+
+    if (calculator != null) {
+      calculator.setResultFile(resultFile);
+    }
+    MessageCli.OUTPUT_SET.printMessage(out, resultFile == null ? "the console" : filename);
+  }
+
+  /**
+   * Set the number of threads used to check properties, for the open graph and any opened later.
+   *
+   * @param threads The number of threads entered by the user.
+   */
+  private void setParallelism(final String threads) {
+    int value;
+
+    try {
+      value = Integer.parseInt(threads);
+    } catch (final NumberFormatException e) {
+      value = 0;
+    }
+
+    if (value < 1) {
+      printError(MessageCli.PARALLELISM_INVALID, threads);
+      return;
+    }
+
+    parallelism = value;
+    if (calculator != null) {
+      calculator.setParallelism(parallelism);
+    }
+    MessageCli.PARALLELISM_SET.printMessage(out, threads, parallelism > 1 ? "s" : "");
+  }
+
+  /**
+   * Parse the most verticies a search should print.
+   *
+   * @param limit The limit entered by the user.
+   * @return The limit, or -1 if it is not a number of verticies.
+   */
+  private int parseLimit(final String limit) {
+    int value;
+
+    try {
+      value = Integer.parseInt(limit);
+    } catch (final NumberFormatException e) {
+      value = -1;
+    }
+
+    if (value < 0) {
+      printError(MessageCli.LIMIT_INVALID, limit);
+    }
+    return value;
+  }
+
+  /**
+   * Set if checking a property prints why it does not hold, for the open graph and any opened
+   * later.
+   *
+   * @param value "on" or "off" as entered by the user.
+   */
+  private void setShowCounterexamples(final String value) {
+    if (value.equalsIgnoreCase("on")) {
+      counterexamples = true;
+    } else if (value.equalsIgnoreCase("off")) {
+      counterexamples = false;
+    } else {
+      printError(MessageCli.COUNTEREXAMPLES_INVALID, value);
+      return;
+    }
+
+    if (calculator != null) {
+      calculator.setShowCounterexamples(counterexamples);
+    }
+    MessageCli.COUNTEREXAMPLES_SET.printMessage(out, counterexamples ? "shown" : "hidden");
+  }
+
   /**
    * Check that the correct number of arguments were provided for the command.
    *
@@ -1,10 +1,8 @@
 package nz.ac.auckland.se281;
 
-/**
- * Templates of messages that can be printed to the CLI.
- *
- * <p>You should not modify this class.
- */
+import java.io.PrintStream;
+
+/** Templates of messages that can be printed to the CLI. */
 public enum MessageCli {
   COMMAND_NOT_FOUND(
       "Error! Command not found! (run 'help' for the list of available commands): \"%s\""),
@@ -15,13 +13,48 @@ public enum MessageCli {
   OPENED_FILE_SUCCESSFULLY("Successfully opened graph from file %s"),
   FILE_NOT_OPEN("Error: no valid file open"),
   FILE_NOT_FOUND("Error: file '%s' not found in `testcases` folder"),
+  FILE_INVALID("Error: file '%s' is not a valid DOT graph"),
   INFO("File name: %s"),
+  OUTPUT_SET("Writing results to %s"),
+  OUTPUT_INVALID("Error: cannot write results to file '%s'"),
+  PARALLELISM_SET("Checking properties with %s thread%s"),
+  PARALLELISM_INVALID("Error: '%s' is not a valid number of threads"),
+  COUNTEREXAMPLES_SET("Counterexamples are %s"),
+  COUNTEREXAMPLES_INVALID("Error: '%s' is not on or off"),
+  LIMIT_INVALID("Error: '%s' is not a valid number of vertices"),
+  STATS_EMPTY("No commands have been run yet"),
+  STATS_COMMAND(
+      "%s: %s run%s, %s ms wall time, %s ms CPU time, %s bytes allocated, %s verticies visited,"
+          + " %s edges scanned"),
+  STATS_RECURSION("\tdeepest recursion: %s calls"),
+  STATS_BUCKET("\tunder %s us: %s"),
+  STATS_EXPORTED("Exported statistics to %s"),
+  STATS_NOT_EXPORTED("Error: could not export statistics to file '%s'"),
+  SERVER_LISTENING("Listening for queries on %s"),
+  SERVER_ONLY("Error: %s is only available in server mode"),
+  SERVER_READ_ONLY("Error: %s cannot change a graph shared by the query server"),
+  LATENCY_PERCENTILES("%s request%s, p50 %s us, p90 %s us, p99 %s us, max %s us"),
+  SNAPSHOT_INVALID("Error: file '%s' is not a valid graph snapshot"),
+  SNAPSHOT_SAVED("Successfully saved snapshot to file %s"),
+  SNAPSHOT_NOT_SAVED("Error: could not save snapshot to file '%s'"),
+  VERTEX_ADDED("Added vertex %s"),
+  VERTEX_EXISTS("Vertex %s is already in the graph"),
+  EDGE_ADDED("Added edge %s -> %s"),
+  EDGE_EXISTS("Edge %s -> %s is already in the graph"),
+  EDGE_REMOVED("Removed edge %s -> %s"),
+  EDGE_NOT_FOUND("Error: edge %s -> %s is not in the graph"),
+  VERTEX_NOT_FOUND("Error: vertex %s is not in the graph"),
+  COMPONENT_OF("Vertex %s is in strongly connected component %s of size %s"),
 
   GRAPH_REFLEXIVE("The graph is %sreflexive"),
   GRAPH_SYMMETRIC("The graph is %ssymmetric"),
   GRAPH_ANTI_SYMMETRIC("The graph is %santisymmetric"),
   GRAPH_EQUIVALENCE("The graph is %san equivalence relation"),
   GRAPH_TRANSITIVE("The graph is %stransitive"),
+  COUNTEREXAMPLE_REFLEXIVE("Counterexample: vertex %s has no edge to itself"),
+  COUNTEREXAMPLE_SYMMETRIC("Counterexample: edge %s -> %s has no edge back"),
+  COUNTEREXAMPLE_ANTI_SYMMETRIC("Counterexample: edge %s -> %s has an edge back"),
+  COUNTEREXAMPLE_TRANSITIVE("Counterexample: edges %s -> %s -> %s have no edge %s -> %s"),
 
   END("You closed the terminal. Goodbye.");
 
@@ -59,6 +92,17 @@ public enum MessageCli {
    * @param args The arguments to fill in the template.
    */
   public void printMessage(final String... args) {
-    System.out.println(getMessage(args));
+    printMessage(System.out, args);
+  }
+
+  /**
+   * Print the message to the given stream after filling the template using {@link
+   * #getMessage(String...)}.
+   *
+   * @param out The stream to print to.
+   * @param args The arguments to fill in the template.
+   */
+  public void printMessage(final PrintStream out, final String... args) {
+    out.println(getMessage(args));
   }
 }
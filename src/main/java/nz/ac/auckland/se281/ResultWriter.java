@@ -0,0 +1,171 @@
+package nz.ac.auckland.se281;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes results to a channel as they are produced, encoding them through small fixed buffers, so
+ * printing a list of 100k verticies never builds the whole line in memory first. Lists are written
+ * in the same `[a, b, c]` format as {@link java.util.AbstractCollection#toString()}.
+ */
+public class ResultWriter implements Closeable {
+  private static final int BUFFER_SIZE = 1 << 14;
+
+  private final WritableByteChannel channel;
+  private final boolean closeChannel;
+  private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+  private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+  private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE * 4);
+
+  /**
+   * Create a new writer to the given channel.
+   *
+   * @param channel The channel to write to.
+   * @param closeChannel If closing the writer should also close the channel.
+   */
+  public ResultWriter(final WritableByteChannel channel, final boolean closeChannel) {
+    this.channel = channel;
+    this.closeChannel = closeChannel;
+  }
+
+  /**
+   * Create a writer to an output stream, such as the console. Closing it flushes it but leaves the
+   * stream open.
+   *
+   * @param out The stream to write to.
+   * @return The writer.
+   */
+  public static ResultWriter toStream(final OutputStream out) {
+    return new ResultWriter(Channels.newChannel(out), false);
+  }
+
+  /**
+   * Create a writer that appends to the given file, creating it if it does not exist.
+   *
+   * @param file The file to append to.
+   * @return The writer.
+   * @throws IOException If the file cannot be opened.
+   */
+  public static ResultWriter toFile(final Path file) throws IOException {
+    return new ResultWriter(
+        FileChannel.open(
+            file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND),
+        true);
+  }
+
+  /**
+   * Write the items as a list on a line of its own. Items that are themselves iterable are
+   * written as nested lists.
+   *
+   * @param items The items to write.
+   * @throws IOException If the channel cannot be written.
+   */
+  public void writeList(final Iterable<?> items) throws IOException {
+    writeItems(items);
+    append(System.lineSeparator());
+  }
+
+  /**
+   * Write the items in the `[a, b, c]` format.
+   *
+   * @param items The items to write.
+   * @throws IOException If the channel cannot be written.
+   */
+  private void writeItems(final Iterable<?> items) throws IOException {
+    boolean first = true;
+
+    append("[");
+    for (final Object item : items) {
+      if (!first) {
+        append(", ");
+      }
+      if (item instanceof Iterable) {
+        writeItems((Iterable<?>) item);
+      } else {
+        append(String.valueOf(item));
+      }
+      first = false;
+    }
+    append("]");
+  }
+
+  /**
+   * Add text to the character buffer, encoding the buffer whenever it fills up.
+   *
+   * @param text The text to add.
+   * @throws IOException If the channel cannot be written.
+   */
+  private void append(final String text) throws IOException {
+    int start = 0;
+
+    while (start < text.length()) {
+      if (!chars.hasRemaining()) {
+        encode(false);
+      }
+      final int end = Math.min(text.length(), start + chars.remaining());
+      chars.put(text, start, end);
+      start = end;
+    }
+  }
+
+  /**
+   * Encode the buffered characters into the byte buffer, writing it out whenever it fills up.
+   *
+   * @param endOfInput If no more characters will follow.
+   * @throws IOException If the channel cannot be written.
+   */
+  private void encode(final boolean endOfInput) throws IOException {
+    chars.flip();
+    CoderResult result = encoder.encode(chars, bytes, endOfInput);
+    while (result.isOverflow()) {
+      drain();
+      result = encoder.encode(chars, bytes, endOfInput);
+    }
+    // keeps half of a surrogate pair split across two appends for the next encode
+    chars.compact();
+  }
+
+  /**
+   * Write the encoded bytes to the channel.
+   *
+   * @throws IOException If the channel cannot be written.
+   */
+  private void drain() throws IOException {
+    bytes.flip();
+    while (bytes.hasRemaining()) {
+      channel.write(bytes);
+    }
+    bytes.clear();
+  }
+
+  /**
+   * Write everything buffered so far to the channel.
+   *
+   * @throws IOException If the channel cannot be written.
+   */
+  public void flush() throws IOException {
+    encode(false);
+    drain();
+  }
+
+  @Override
+  public void close() throws IOException {
+    encode(true);
+    encoder.flush(bytes);
+    drain();
+    if (closeChannel) {
+      channel.close();
+    }
+  }
+}
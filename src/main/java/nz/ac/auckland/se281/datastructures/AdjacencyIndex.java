@@ -0,0 +1,290 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A compressed sparse row index of the outgoing edges of every vertex in a graph. The
+ * destinations of the edges leaving the vertex with ordinal i are stored in targets[offsets[i]]
+ * to targets[offsets[i + 1] - 1]. Ordinals come from a {@link VertexDictionary}, so they follow
+ * the numeric order of the verticies, and each row is sorted so neighbours come smallest first.
+ *
+ * <p>Large graphs keep their rows outside the heap instead, see {@link OffHeapAdjacencyIndex}.
+ *
+ * @param <T> The type of each vertex.
+ */
+public class AdjacencyIndex<T extends Comparable<T>> {
+  private final VertexDictionary<T> dictionary;
+  private final int[] offsets;
+  private final int[] targets;
+
+  /**
+   * Constructor for AdjacencyIndex, builds the index once from the given edges.
+   *
+   * @param dictionary The ordinals of the verticies of the graph.
+   * @param edges The edges of the graph.
+   */
+  public AdjacencyIndex(VertexDictionary<T> dictionary, Set<Edge<T>> edges) {
+    this(
+        dictionary,
+        toOrdinals(dictionary, edges, true),
+        toOrdinals(dictionary, edges, false),
+        edges.size());
+  }
+
+  /**
+   * Constructor for AdjacencyIndex, builds the index from edges that are already given as pairs of
+   * ordinals. Repeated edges are only kept once.
+   *
+   * @param dictionary The ordinals of the verticies of the graph.
+   * @param sources The ordinal of the source of each edge.
+   * @param destinations The ordinal of the destination of each edge.
+   * @param count The number of edges in the arrays.
+   */
+  public AdjacencyIndex(
+      VertexDictionary<T> dictionary, int[] sources, int[] destinations, int count) {
+    this.dictionary = dictionary;
+
+    offsets = new int[dictionary.size() + 1];
+    // counts the out degree of each vertex, shifted by one so the prefix sum gives the offsets
+    for (int i = 0; i < count; i++) {
+      offsets[sources[i] + 1]++;
+    }
+    for (int i = 0; i < dictionary.size(); i++) {
+      offsets[i + 1] += offsets[i];
+    }
+
+    // places each destination into the next free slot of its source row
+    int[] next = new int[dictionary.size()];
+    System.arraycopy(offsets, 0, next, 0, next.length);
+    int[] rows = new int[count];
+    for (int i = 0; i < count; i++) {
+      rows[next[sources[i]]++] = destinations[i];
+    }
+
+    // sorts each row so the neighbours of a vertex can be walked smallest first, and closes up the
+    // gaps left by repeated edges
+    int end = 0;
+    for (int i = 0; i < dictionary.size(); i++) {
+      int start = offsets[i];
+      int rowEnd = offsets[i + 1];
+      Arrays.sort(rows, start, rowEnd);
+      offsets[i] = end;
+      for (int j = start; j < rowEnd; j++) {
+        if (j == start || rows[j] != rows[j - 1]) {
+          rows[end++] = rows[j];
+        }
+      }
+    }
+    offsets[dictionary.size()] = end;
+    targets = end == count ? rows : Arrays.copyOf(rows, end);
+  }
+
+  /**
+   * Constructor for AdjacencyIndex, uses rows that are already laid out, such as those saved in a
+   * snapshot. Each row must be sorted and hold no repeated edges.
+   *
+   * @param dictionary The ordinals of the verticies of the graph.
+   * @param offsets The start of the row of each vertex, followed by the number of edges.
+   * @param targets The ordinal of the destination of each edge, row by row.
+   * @throws IllegalArgumentException If the rows do not fit the dictionary and targets.
+   */
+  public AdjacencyIndex(VertexDictionary<T> dictionary, int[] offsets, int[] targets)
+      throws IllegalArgumentException {
+    if (offsets.length != dictionary.size() + 1
+        || offsets[0] != 0
+        || offsets[dictionary.size()] != targets.length) {
+      throw new IllegalArgumentException("Offsets do not match the verticies and edges");
+    }
+    for (int i = 0; i < dictionary.size(); i++) {
+      if (offsets[i] > offsets[i + 1]) {
+        throw new IllegalArgumentException("Row " + i + " ends before it starts");
+      }
+      for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+        if (targets[j] < 0
+            || targets[j] >= dictionary.size()
+            || (j > offsets[i] && targets[j] <= targets[j - 1])) {
+          throw new IllegalArgumentException("Row " + i + " is not sorted or not in range");
+        }
+      }
+    }
+
+    this.dictionary = dictionary;
+    this.offsets = offsets;
+    this.targets = targets;
+  }
+
+  /**
+   * Constructor for subclasses that keep the rows somewhere other than arrays on the heap, and so
+   * override every method that reads them.
+   *
+   * @param dictionary The ordinals of the verticies of the graph.
+   */
+  AdjacencyIndex(VertexDictionary<T> dictionary) {
+    this.dictionary = dictionary;
+    this.offsets = null;
+    this.targets = null;
+  }
+
+  /**
+   * Looks up the ordinal of one end of every edge.
+   *
+   * @param dictionary The ordinals of the verticies of the graph.
+   * @param edges The edges of the graph.
+   * @param source True for the source of each edge, False for the destination.
+   * @return The ordinals, in the order the set iterates the edges.
+   */
+  private static <T extends Comparable<T>> int[] toOrdinals(
+      VertexDictionary<T> dictionary, Set<Edge<T>> edges, boolean source) {
+    int[] ordinals = new int[edges.size()];
+    int count = 0;
+
+    for (Edge<T> edge : edges) {
+      ordinals[count++] = dictionary.getOrdinal(source ? edge.getSource() : edge.getDestination());
+    }
+    return ordinals;
+  }
+
+  /**
+   * Returns the number of verticies in the index.
+   *
+   * @return The number of verticies in the index.
+   */
+  public int size() {
+    return dictionary.size();
+  }
+
+  /**
+   * Returns the dictionary the ordinals of the index come from.
+   *
+   * @return The vertex dictionary.
+   */
+  VertexDictionary<T> getDictionary() {
+    return dictionary;
+  }
+
+  /**
+   * Returns the ordinal of the given vertex.
+   *
+   * @param vertex The vertex to look up.
+   * @return The ordinal of the vertex, or -1 if the vertex is not in the index.
+   */
+  public int getOrdinal(T vertex) {
+    return dictionary.getOrdinal(vertex);
+  }
+
+  /**
+   * Returns the vertex with the given ordinal.
+   *
+   * @param ordinal The ordinal of the vertex.
+   * @return The vertex with the given ordinal.
+   */
+  public T getVertex(int ordinal) {
+    return dictionary.getVertex(ordinal);
+  }
+
+  /**
+   * Returns the position in the targets of the first edge leaving the given vertex.
+   *
+   * @param ordinal The ordinal of the source vertex.
+   * @return The start of the row of the vertex.
+   */
+  public int getStart(int ordinal) {
+    return offsets[ordinal];
+  }
+
+  /**
+   * Returns the position in the targets after the last edge leaving the given vertex.
+   *
+   * @param ordinal The ordinal of the source vertex.
+   * @return The end (exclusive) of the row of the vertex.
+   */
+  public int getEnd(int ordinal) {
+    return offsets[ordinal + 1];
+  }
+
+  /**
+   * Returns the ordinal of the destination of the edge at the given position.
+   *
+   * @param position The position in the targets.
+   * @return The ordinal of the destination vertex.
+   */
+  public int getTarget(int position) {
+    return targets[position];
+  }
+
+  /**
+   * Returns the number of edges in the index.
+   *
+   * @return The number of edges in the index.
+   */
+  public int getEdgeCount() {
+    return targets.length;
+  }
+
+  /**
+   * Checks if the rows of the index are kept outside the heap.
+   *
+   * @return boolean True or False if the index is off the heap.
+   */
+  public boolean isOffHeap() {
+    return false;
+  }
+
+  /**
+   * Checks if there is an edge from the source to the destination by a binary search of the
+   * sorted row of the source, without building anything.
+   *
+   * @param source The ordinal of the source vertex.
+   * @param destination The ordinal of the destination vertex.
+   * @return boolean True or False if the edge is in the index.
+   */
+  public boolean containsEdge(int source, int destination) {
+    int low = getStart(source);
+    int high = getEnd(source) - 1;
+
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int target = getTarget(middle);
+      if (target < destination) {
+        low = middle + 1;
+      } else if (target > destination) {
+        high = middle - 1;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the destinations of all the edges leaving the given vertex.
+   *
+   * @param vertex The source vertex.
+   * @return The list of destination verticies in numeric order, empty if the vertex has no
+   *     outgoing edges.
+   */
+  public List<T> getNeighbours(T vertex) {
+    List<T> neighbours = new ArrayList<T>();
+    int ordinal = getOrdinal(vertex);
+
+    if (ordinal == -1) {
+      return neighbours;
+    }
+    for (int i = getStart(ordinal); i < getEnd(ordinal); i++) {
+      neighbours.add(dictionary.getVertex(getTarget(i)));
+    }
+    return neighbours;
+  }
+
+  /**
+   * Estimates the bytes of heap used by the offsets and targets of the index.
+   *
+   * @return The estimated number of bytes.
+   */
+  public long estimateFootprint() {
+    return 32 + 4L * offsets.length + 4L * targets.length;
+  }
+}
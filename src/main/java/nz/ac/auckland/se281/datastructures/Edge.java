@@ -1,5 +1,6 @@
 package nz.ac.auckland.se281.datastructures;
 
+import java.util.Objects;
 import java.util.Set;
 
 /**
@@ -49,10 +50,7 @@ public class Edge<T> {
    * @return Boolean True or False if the given edge is equal to this edge.
    */
   public boolean isEquals(Edge<T> edge) {
-    if (edge.getDestination() == this.getDestination() && edge.getSource() == this.getSource()) {
-      return true;
-    }
-    return false;
+    return this.equals(edge);
   }
 
   /**
@@ -62,14 +60,36 @@ public class Edge<T> {
    * @return Boolean True or False if the given edge is in the set of edges.
    */
   public boolean isIn(Set<Edge<T>> set) {
+    // edges hash by their verticies so a hashed set can answer in constant time
+    return set.contains(this);
+  }
 
-    // Loop through the set of edges and check if this edge is in the set.
-    for (Edge<T> edge : set) {
-      if (edge.isEquals(this)) {
-        return true;
-      }
+  /**
+   * Checks if the given object is an edge with the same source and destination as this edge.
+   *
+   * @param obj The object to compare to this edge.
+   * @return Boolean True or False if the given object is equal to this edge.
+   */
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
     }
-    return false;
+    if (!(obj instanceof Edge)) {
+      return false;
+    }
+    Edge<?> edge = (Edge<?>) obj;
+    return Objects.equals(source, edge.source) && Objects.equals(destination, edge.destination);
+  }
+
+  /**
+   * Returns a hash code built from the source and destination of this edge.
+   *
+   * @return The hash code of this edge.
+   */
+  @Override
+  public int hashCode() {
+    return 31 * Objects.hashCode(source) + Objects.hashCode(destination);
   }
 
   /**
@@ -0,0 +1,220 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * A hashed set of the edges of a graph that answers if there is an edge between two verticies in
+ * constant time. Each edge is stored as the ordinals of its source and destination packed into a
+ * single long, in an open addressed table that is never more than half full. Edges can be added
+ * and removed after it is built, for graphs that are changed one edge at a time.
+ *
+ * <p>An index kept outside the heap is too large to hash, so the lookup for one searches its
+ * sorted rows instead, in time logarithmic in the out degree of the source.
+ */
+public class EdgeLookup {
+  private static final long EMPTY = -1;
+
+  private final AdjacencyIndex<?> rows;
+  private long[] keys;
+  private int shift;
+  private int size;
+
+  /** Constructor for EdgeLookup, starts with no edges. */
+  public EdgeLookup() {
+    this.rows = null;
+    allocate(2);
+  }
+
+  /**
+   * Constructor for EdgeLookup, adds every edge of the given adjacency index.
+   *
+   * @param adjacency The adjacency index of the graph.
+   */
+  public EdgeLookup(AdjacencyIndex<?> adjacency) {
+    this.rows = null;
+    int capacity = 2;
+    while (capacity < adjacency.getEdgeCount() * 2L) {
+      capacity <<= 1;
+    }
+    allocate(capacity);
+
+    for (int source = 0; source < adjacency.size(); source++) {
+      for (int i = adjacency.getStart(source); i < adjacency.getEnd(source); i++) {
+        insert(key(source, adjacency.getTarget(i)));
+      }
+    }
+  }
+
+  /**
+   * Constructor for EdgeLookup, answers from the sorted rows of the given index without hashing.
+   *
+   * @param adjacency The adjacency index of the graph.
+   * @param searchRows Always true, to tell this constructor apart.
+   */
+  private EdgeLookup(AdjacencyIndex<?> adjacency, boolean searchRows) {
+    this.rows = adjacency;
+  }
+
+  /**
+   * Creates the lookup for the edges of an index, hashing them unless the index is kept outside
+   * the heap. The lookup for an index outside the heap cannot be changed.
+   *
+   * @param adjacency The adjacency index of the graph.
+   * @return The edge lookup.
+   */
+  public static EdgeLookup of(AdjacencyIndex<?> adjacency) {
+    return adjacency.isOffHeap() ? new EdgeLookup(adjacency, true) : new EdgeLookup(adjacency);
+  }
+
+  /**
+   * Replaces the table with an empty one of the given capacity.
+   *
+   * @param capacity The number of slots, a power of two.
+   */
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    size = 0;
+    Arrays.fill(keys, EMPTY);
+  }
+
+  /**
+   * Packs an edge into a single long. Ordinals are never negative, so no key equals EMPTY.
+   *
+   * @param source The ordinal of the source vertex.
+   * @param destination The ordinal of the destination vertex.
+   * @return The key of the edge.
+   */
+  private static long key(int source, int destination) {
+    return ((long) source << 32) | destination;
+  }
+
+  /**
+   * Finds the slot to start probing from for the given key.
+   *
+   * @param key The key of an edge.
+   * @return The first slot to look in.
+   */
+  private int slot(long key) {
+    // fibonacci hashing spreads keys that only differ in the low bits across the table
+    return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+  }
+
+  /**
+   * Adds the key to the table if it is not already in it.
+   *
+   * @param key The key of an edge.
+   * @return boolean True or False if the key was added.
+   */
+  private boolean insert(long key) {
+    int mask = keys.length - 1;
+    int slot = slot(key);
+
+    while (keys[slot] != EMPTY) {
+      if (keys[slot] == key) {
+        return false;
+      }
+      slot = (slot + 1) & mask;
+    }
+    keys[slot] = key;
+    size++;
+    return true;
+  }
+
+  /**
+   * Adds an edge from the source to the destination, doubling the table first if it would be more
+   * than half full.
+   *
+   * @param source The ordinal of the source vertex.
+   * @param destination The ordinal of the destination vertex.
+   * @return boolean True or False if the edge was added, False if it was already in the set.
+   * @throws UnsupportedOperationException If the lookup searches the rows of an index.
+   */
+  public boolean add(int source, int destination) throws UnsupportedOperationException {
+    if (rows != null) {
+      throw new UnsupportedOperationException("Edges cannot be added to a searched index");
+    }
+    if ((size + 1) * 2L > keys.length) {
+      long[] old = keys;
+      allocate(keys.length * 2);
+      for (long key : old) {
+        if (key != EMPTY) {
+          insert(key);
+        }
+      }
+    }
+    return insert(key(source, destination));
+  }
+
+  /**
+   * Removes the edge from the source to the destination. The entries after it in the same run are
+   * shifted back into the gap, so no tombstones are left behind to slow down later probes.
+   *
+   * @param source The ordinal of the source vertex.
+   * @param destination The ordinal of the destination vertex.
+   * @return boolean True or False if the edge was removed, False if it was not in the set.
+   * @throws UnsupportedOperationException If the lookup searches the rows of an index.
+   */
+  public boolean remove(int source, int destination) throws UnsupportedOperationException {
+    if (rows != null) {
+      throw new UnsupportedOperationException("Edges cannot be removed from a searched index");
+    }
+    int mask = keys.length - 1;
+    long key = key(source, destination);
+    int hole = slot(key);
+
+    while (keys[hole] != key) {
+      if (keys[hole] == EMPTY) {
+        return false;
+      }
+      hole = (hole + 1) & mask;
+    }
+
+    int next = (hole + 1) & mask;
+    while (keys[next] != EMPTY) {
+      // an entry can fill the hole only if the hole is on its probe path from its home slot
+      int home = slot(keys[next]);
+      if (((next - home) & mask) >= ((next - hole) & mask)) {
+        keys[hole] = keys[next];
+        hole = next;
+      }
+      next = (next + 1) & mask;
+    }
+    keys[hole] = EMPTY;
+    size--;
+    return true;
+  }
+
+  /**
+   * Checks if there is an edge from the source to the destination.
+   *
+   * @param source The ordinal of the source vertex.
+   * @param destination The ordinal of the destination vertex.
+   * @return boolean True or False if the edge is in the set.
+   */
+  public boolean contains(int source, int destination) {
+    if (rows != null) {
+      return rows.containsEdge(source, destination);
+    }
+    int mask = keys.length - 1;
+    long key = key(source, destination);
+    int slot = slot(key);
+
+    while (keys[slot] != EMPTY) {
+      if (keys[slot] == key) {
+        return true;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return false;
+  }
+
+  /**
+   * Estimates the bytes of heap used by the table.
+   *
+   * @return The estimated number of bytes.
+   */
+  public long estimateFootprint() {
+    return keys == null ? 16 : 16 + 8L * keys.length;
+  }
+}
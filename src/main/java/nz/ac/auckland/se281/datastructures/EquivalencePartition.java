@@ -0,0 +1,163 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A partition of the verticies of a graph into the sets connected by its edges, built with a
+ * single union-find pass over the adjacency index. When the graph is an equivalence relation these
+ * sets are exactly its equivalence classes. The classes are numbered in the order of their smallest
+ * vertex, and the members of each class are kept in ordinal order.
+ *
+ * @param <T> The type of each vertex.
+ */
+public class EquivalencePartition<T extends Comparable<T>> {
+  private final AdjacencyIndex<T> adjacency;
+  private final int[] classOf;
+  private final int[] offsets;
+  private final int[] members;
+
+  /**
+   * Constructor for EquivalencePartition.
+   *
+   * @param adjacency The adjacency index of the graph to partition.
+   */
+  public EquivalencePartition(AdjacencyIndex<T> adjacency) {
+    this.adjacency = adjacency;
+    int size = adjacency.size();
+    int[] parent = new int[size];
+    int[] rank = new int[size];
+
+    for (int vertex = 0; vertex < size; vertex++) {
+      parent[vertex] = vertex;
+    }
+    // joins the set of every vertex with the sets of its successors
+    for (int vertex = 0; vertex < size; vertex++) {
+      for (int i = adjacency.getStart(vertex); i < adjacency.getEnd(vertex); i++) {
+        union(parent, rank, vertex, adjacency.getTarget(i));
+      }
+    }
+
+    // numbers the sets in order of their smallest vertex and counts the members of each
+    int[] classOfRoot = new int[size];
+    int count = 0;
+    classOf = new int[size];
+    Arrays.fill(classOfRoot, -1);
+    for (int vertex = 0; vertex < size; vertex++) {
+      int root = find(parent, vertex);
+      if (classOfRoot[root] == -1) {
+        classOfRoot[root] = count++;
+      }
+      classOf[vertex] = classOfRoot[root];
+    }
+    offsets = new int[count + 1];
+    for (int vertex = 0; vertex < size; vertex++) {
+      offsets[classOf[vertex] + 1]++;
+    }
+    for (int i = 0; i < count; i++) {
+      offsets[i + 1] += offsets[i];
+    }
+
+    // groups the verticies of each set together
+    int[] next = new int[count];
+    System.arraycopy(offsets, 0, next, 0, count);
+    members = new int[size];
+    for (int vertex = 0; vertex < size; vertex++) {
+      members[next[classOf[vertex]]++] = vertex;
+    }
+  }
+
+  /**
+   * Finds the representative of the set holding the given vertex, halving the path as it goes.
+   *
+   * @param parent The parent of each vertex in the union-find forest.
+   * @param vertex The ordinal of the vertex.
+   * @return The ordinal of the representative.
+   */
+  private static int find(int[] parent, int vertex) {
+    while (parent[vertex] != vertex) {
+      parent[vertex] = parent[parent[vertex]];
+      vertex = parent[vertex];
+    }
+    return vertex;
+  }
+
+  /**
+   * Joins the sets holding the two verticies, attaching the shallower tree under the deeper one.
+   *
+   * @param parent The parent of each vertex in the union-find forest.
+   * @param rank The upper bound of the depth of each tree.
+   * @param first The ordinal of the first vertex.
+   * @param second The ordinal of the second vertex.
+   */
+  private static void union(int[] parent, int[] rank, int first, int second) {
+    int firstRoot = find(parent, first);
+    int secondRoot = find(parent, second);
+
+    if (firstRoot == secondRoot) {
+      return;
+    }
+    if (rank[firstRoot] < rank[secondRoot]) {
+      parent[firstRoot] = secondRoot;
+    } else if (rank[firstRoot] > rank[secondRoot]) {
+      parent[secondRoot] = firstRoot;
+    } else {
+      parent[secondRoot] = firstRoot;
+      rank[firstRoot]++;
+    }
+  }
+
+  /**
+   * Returns the number of classes in the partition.
+   *
+   * @return The number of classes.
+   */
+  public int getClassCount() {
+    return offsets.length - 1;
+  }
+
+  /**
+   * Returns the class that the vertex with the given ordinal belongs to.
+   *
+   * @param ordinal The ordinal of the vertex.
+   * @return The index of its class.
+   */
+  public int getClassOf(int ordinal) {
+    return classOf[ordinal];
+  }
+
+  /**
+   * Returns the ordinal of the smallest vertex in the given class.
+   *
+   * @param index The index of the class.
+   * @return The ordinal of its smallest vertex.
+   */
+  public int getSmallest(int index) {
+    return members[offsets[index]];
+  }
+
+  /**
+   * Returns the verticies in the given class, in the time it takes to list them.
+   *
+   * @param index The index of the class.
+   * @return The verticies in the class.
+   */
+  public List<T> getMembers(int index) {
+    List<T> result = new ArrayList<T>(offsets[index + 1] - offsets[index]);
+
+    for (int i = offsets[index]; i < offsets[index + 1]; i++) {
+      result.add(adjacency.getVertex(members[i]));
+    }
+    return result;
+  }
+
+  /**
+   * Estimates the bytes of heap used by the partition.
+   *
+   * @return The estimated number of bytes.
+   */
+  public long estimateFootprint() {
+    return 48 + 4L * (classOf.length + offsets.length + members.length);
+  }
+}
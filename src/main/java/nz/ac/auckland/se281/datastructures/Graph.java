@@ -1,12 +1,19 @@
 package nz.ac.auckland.se281.datastructures;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A graph that is composed of a set of verticies and edges.
@@ -17,26 +24,304 @@ import java.util.TreeSet;
  */
 public class Graph<T extends Comparable<T>> {
   private Set<T> verticies;
-  private Set<Edge<T>> edges;
+  private VertexDictionary<T> dictionary;
+  private AdjacencyIndex<T> adjacency;
+
+  // properties are computed on first use and reused until the graph is next changed, and are
+  // shared with every session of the graph
+  private volatile Results<T> results = new Results<T>();
+  private volatile int parallelism = 1;
+  private final WorkCounter work = new WorkCounter();
+  // searches take the scratch while they run, so a search started while another is running on a
+  // different thread gets a scratch of its own
+  private final AtomicReference<SearchScratch> scratch;
+  private final boolean session;
+
+  // once the graph has been changed, the changes are kept here and the index is rebuilt from them
+  // only when a query needs it
+  private MutableAdjacency<T> changes;
+  private boolean stale;
+  private int modificationCount;
+
+  public Graph(Set<T> verticies, Set<Edge<T>> edges) {
+    this.verticies = verticies;
+    // numbers the verticies in numeric order once, so all ordering after this is done on ints
+    this.dictionary = new VertexDictionary<T>(verticies, edges);
+    this.adjacency = new AdjacencyIndex<T>(dictionary, edges);
+    this.scratch = new AtomicReference<SearchScratch>();
+    this.session = false;
+  }
 
   /**
-   * Compares 2 integer strings to see which is larger.
+   * Constructor for a graph that has already been indexed, such as by a loader that reads the
+   * edges straight into ordinals without creating an {@link Edge} for each one.
    *
-   * @param o1 The first integer string.
-   * @param o2 The second integer string.
-   * @return int 1 if o1 is larger, -1 if o2 is larger, 0 if they are equal.
+   * @param dictionary The ordinals of the verticies of the graph.
+   * @param adjacency The outgoing edges of each vertex.
    */
-  private Comparator<T> comparator =
-      new Comparator<T>() {
-        @Override
-        public int compare(T o1, T o2) {
-          return Integer.compare(Integer.parseInt(o1.toString()), Integer.parseInt(o2.toString()));
-        }
-      };
+  public Graph(VertexDictionary<T> dictionary, AdjacencyIndex<T> adjacency) {
+    this.verticies = dictionary.asSet();
+    this.dictionary = dictionary;
+    this.adjacency = adjacency;
+    this.scratch = new AtomicReference<SearchScratch>();
+    this.session = false;
+  }
 
-  public Graph(Set<T> verticies, Set<Edge<T>> edges) {
-    this.verticies = verticies;
-    this.edges = edges;
+  /**
+   * Constructor for a session of a graph, see {@link #newSession()}.
+   *
+   * @param graph The graph to share the verticies, edges and results of.
+   */
+  private Graph(Graph<T> graph) {
+    graph.refresh();
+    // once the graph has been changed its verticies are a set it keeps adding to, so the session
+    // takes a copy of them as they are now
+    this.verticies =
+        graph.changes == null
+            ? graph.verticies
+            : Collections.unmodifiableSet(new HashSet<T>(graph.verticies));
+    this.dictionary = graph.dictionary;
+    this.adjacency = graph.adjacency;
+    this.results = graph.results;
+    this.scratch = graph.scratch;
+    this.session = true;
+  }
+
+  /**
+   * Creates a session of this graph, which shares its verticies, edges and every property computed
+   * so far, but has its own parallelism and work counter. Clients sharing one graph can each take a
+   * session, so the threads one of them asks for and the work it does are kept apart from the
+   * others. A session cannot be changed, and does not see changes later made to this graph, so
+   * must be taken on the thread that changes the graph.
+   *
+   * @return The session.
+   */
+  public Graph<T> newSession() {
+    return new Graph<T>(this);
+  }
+
+  /**
+   * Sets the number of threads used to check the properties of this graph. The threads come from a
+   * pool shared by every graph, with a thread for each processor, so asking for more than that
+   * only splits the work more finely. Each property gives the same answer however many threads
+   * check it.
+   *
+   * @param parallelism The number of threads, 1 to check on the calling thread.
+   * @throws IllegalArgumentException If the number of threads is not positive.
+   */
+  public void setParallelism(int parallelism) throws IllegalArgumentException {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1");
+    }
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Gets the number of threads used to check the properties of this graph.
+   *
+   * @return The number of threads.
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Gets the counts of the verticies visited and edges scanned by every check and search on this
+   * graph or session so far.
+   *
+   * @return The work counter of this graph.
+   */
+  public WorkCounter getWorkCounter() {
+    return work;
+  }
+
+  /**
+   * Checks if the adjacency index of this graph is kept outside the heap, see {@link
+   * OffHeapAdjacencyIndex}.
+   *
+   * @return boolean True or False if the index is off the heap.
+   */
+  public boolean isOffHeap() {
+    refresh();
+    return adjacency.isOffHeap();
+  }
+
+  /**
+   * Gets the adjacency index of this graph, for saving it without going through its edges.
+   *
+   * @return The adjacency index.
+   */
+  AdjacencyIndex<T> getAdjacency() {
+    refresh();
+    return adjacency;
+  }
+
+  /**
+   * Adds a vertex to this graph. The reflexive, symmetric and anti symmetric properties and the
+   * roots are kept up to date as the graph changes, so they can still be answered in constant time
+   * after each change.
+   *
+   * @param vertex The vertex to add.
+   * @return boolean True or False if the vertex was added, False if it was already in the graph.
+   */
+  public boolean addVertex(T vertex) {
+    return changed(getChanges().addVertex(vertex));
+  }
+
+  /**
+   * Adds an edge to this graph, adding either vertex first if it is not in the graph.
+   *
+   * @param source The source vertex.
+   * @param destination The destination vertex.
+   * @return boolean True or False if the edge was added, False if it was already in the graph.
+   */
+  public boolean addEdge(T source, T destination) {
+    return changed(getChanges().addEdge(source, destination));
+  }
+
+  /**
+   * Removes an edge from this graph. Both verticies stay in the graph.
+   *
+   * @param source The source vertex.
+   * @param destination The destination vertex.
+   * @return boolean True or False if the edge was removed, False if it was not in the graph.
+   */
+  public boolean removeEdge(T source, T destination) {
+    return changed(getChanges().removeEdge(source, destination));
+  }
+
+  /**
+   * Gets the number of changes made to this graph, so a caller holding on to it can tell if it has
+   * changed since it last looked.
+   *
+   * @return The number of verticies and edges added or removed.
+   */
+  public int getModificationCount() {
+    return modificationCount;
+  }
+
+  /**
+   * Gets the changes made to this graph, starting them from its index on the first change.
+   *
+   * @return The changes to this graph.
+   * @throws UnsupportedOperationException If this is a session of a graph.
+   */
+  private MutableAdjacency<T> getChanges() {
+    if (session) {
+      throw new UnsupportedOperationException("A session of a graph cannot be changed");
+    }
+    if (changes == null) {
+      // the set given to the constructor belongs to the caller, so it is never changed
+      verticies = new HashSet<T>(verticies);
+      changes = new MutableAdjacency<T>(adjacency, verticies);
+    }
+    return changes;
+  }
+
+  /**
+   * Marks the index as out of date if the graph was changed.
+   *
+   * @param changed If the graph was changed.
+   * @return boolean The value of changed.
+   */
+  private boolean changed(boolean changed) {
+    if (changed) {
+      stale = true;
+      modificationCount++;
+    }
+    return changed;
+  }
+
+  /**
+   * Rebuilds the index from the changes made since it was last built, forgetting everything that
+   * was computed from the old one.
+   */
+  private void refresh() {
+    if (!stale) {
+      return;
+    }
+    dictionary = changes.toDictionary();
+    adjacency = OffHeapAdjacencyIndex.moveIfLarge(changes.toAdjacencyIndex(dictionary));
+    // sessions taken before the change keep the results of the graph they were taken from
+    results = new Results<T>();
+    stale = false;
+  }
+
+  /**
+   * Checks if the changes made to this graph already rule out it being an equivalence relation,
+   * without rebuilding the index.
+   *
+   * @return boolean True or False if the graph has changed and is not reflexive and symmetric.
+   */
+  private boolean changesRuleOutEquivalence() {
+    return changes != null && !(changes.isReflexive() && changes.isSymmetric());
+  }
+
+  /**
+   * Gets the hashed set of edges, building it the first time it is needed so that queries which
+   * only walk the rows never pay for it. Indexes kept outside the heap search their rows instead.
+   *
+   * @return The edge lookup of this graph.
+   */
+  private EdgeLookup getEdgeLookup() {
+    if (results.edgeLookup == null) {
+      results.edgeLookup = EdgeLookup.of(adjacency);
+    }
+    return results.edgeLookup;
+  }
+
+  /**
+   * Checks if there is an edge from the source to the destination in constant time.
+   *
+   * @param source The source vertex.
+   * @param destination The destination vertex.
+   * @return boolean True or False if the edge is in the graph.
+   */
+  public boolean hasEdge(T source, T destination) {
+    if (changes != null) {
+      return changes.hasEdge(source, destination);
+    }
+    int sourceOrdinal = dictionary.getOrdinal(source);
+    int destinationOrdinal = dictionary.getOrdinal(destination);
+
+    if (sourceOrdinal == -1 || destinationOrdinal == -1) {
+      return false;
+    }
+    return getEdgeLookup().contains(sourceOrdinal, destinationOrdinal);
+  }
+
+  /**
+   * Gets every vertex in this graph.
+   *
+   * @return The verticies in numeric order.
+   */
+  public List<T> getVerticies() {
+    refresh();
+    List<T> result = new ArrayList<T>(adjacency.size());
+
+    for (int ordinal = 0; ordinal < adjacency.size(); ordinal++) {
+      result.add(dictionary.getVertex(ordinal));
+    }
+    return result;
+  }
+
+  /**
+   * Gets every edge in this graph. The edges are created on each call, as the graph only keeps
+   * them as ordinals.
+   *
+   * @return The edges in numeric order of their source, then their destination.
+   */
+  public List<Edge<T>> getEdges() {
+    refresh();
+    List<Edge<T>> result = new ArrayList<Edge<T>>(adjacency.getEdgeCount());
+
+    for (int source = 0; source < adjacency.size(); source++) {
+      for (int i = adjacency.getStart(source); i < adjacency.getEnd(source); i++) {
+        T destination = dictionary.getVertex(adjacency.getTarget(i));
+        result.add(new Edge<T>(dictionary.getVertex(source), destination));
+      }
+    }
+    return result;
   }
 
   /**
@@ -45,31 +330,65 @@ public class Graph<T extends Comparable<T>> {
    * @return The set of verticies in this graph which are roots.
    */
   public Set<T> getRoots() {
-
-    Set<T> roots = new TreeSet<T>(comparator);
-    roots.addAll(verticies);
-    T min;
-    int count;
-    // loops through all edges and removes the destination vertex from the set of roots
-    for (T vertix : verticies) {
-      count = 0;
-      for (Edge<T> edge : edges) {
-        if (edge.contains(vertix)) {
-          count++;
-        }
-        roots.remove(edge.getDestination());
-        // if its an equivalence relation, add the minimum value of equivalence relation to roots
-        if (this.isEquivalence()) {
-          min = Collections.min(this.getEquivalenceClass(edge.getSource()), comparator);
-          roots.add(min);
-        }
+    // the changes keep the roots up to date unless the graph may be an equivalence relation
+    if (changesRuleOutEquivalence()) {
+      return changes.getRoots();
+    }
+    refresh();
+    if (results.roots == null) {
+      Set<T> result = new LinkedHashSet<T>();
+      for (int ordinal : getRootOrdinals()) {
+        result.add(dictionary.getVertex(ordinal));
       }
-      if (count == 0) {
-        roots.remove(vertix);
+      results.roots = Collections.unmodifiableSet(result);
+    }
+    return results.roots;
+  }
+
+  /**
+   * Gets the ordinals of the roots for this graph, which are in numeric order of the roots.
+   *
+   * @return The ordinals of the roots.
+   */
+  private int[] getRootOrdinals() {
+    if (results.rootOrdinals == null) {
+      results.rootOrdinals = computeRootOrdinals();
+    }
+    return results.rootOrdinals;
+  }
+
+  /**
+   * Computes the roots for this graph in a single pass over the adjacency index.
+   *
+   * @return The ordinals of the verticies in this graph which are roots, in ascending order.
+   */
+  private int[] computeRootOrdinals() {
+    // if its an equivalence relation, the roots are the minimum of each equivalence class
+    if (this.isEquivalence()) {
+      EquivalencePartition<T> partition = getPartition();
+      int[] result = new int[partition.getClassCount()];
+      for (int i = 0; i < result.length; i++) {
+        result[i] = partition.getSmallest(i);
       }
+      return result;
     }
 
-    return roots;
+    OrdinalBitmap hasIncoming = new OrdinalBitmap(adjacency.size());
+    for (int i = 0; i < adjacency.getEdgeCount(); i++) {
+      hasIncoming.add(adjacency.getTarget(i));
+    }
+    work.add(adjacency.size(), adjacency.getEdgeCount());
+    // a root has no edges coming in, and at least one edge going out
+    int[] result = new int[adjacency.size()];
+    int count = 0;
+    for (int ordinal = 0; ordinal < adjacency.size(); ordinal++) {
+      if (!hasIncoming.contains(ordinal)
+          && adjacency.getEnd(ordinal) > adjacency.getStart(ordinal)
+          && verticies.contains(dictionary.getVertex(ordinal))) {
+        result[count++] = ordinal;
+      }
+    }
+    return Arrays.copyOf(result, count);
   }
 
   /**
@@ -78,23 +397,90 @@ public class Graph<T extends Comparable<T>> {
    * @return boolean True or False if graph is reflexive.
    */
   public boolean isReflexive() {
+    if (changes != null) {
+      return changes.isReflexive();
+    }
+    if (results.reflexive == null) {
+      results.reflexive = computeReflexive();
+    }
+    return results.reflexive;
+  }
 
-    Edge<T> temp;
-    int count = 0;
-    // loops through all verticies and checks if there is an edge from the vertex to itself
-    for (T vertex : verticies) {
-      temp = new Edge<T>(vertex, vertex);
-      // if there is an edge from the vertex to itself, increment count
-      if (temp.isIn(edges)) {
-        count++;
+  /**
+   * Computes if graph is reflexive.
+   *
+   * @return boolean True or False if graph is reflexive.
+   */
+  private boolean computeReflexive() {
+    // builds the lookup here rather than in a range, as the ranges may run on different threads
+    EdgeLookup edges = getEdgeLookup();
+
+    return RangeCheckRunner.run(
+        adjacency,
+        new VertexRangeCheck() {
+          @Override
+          public boolean holds(int from, int to, AtomicBoolean cancelled) {
+            return findMissingSelfLoop(edges, from, to, cancelled) == -1;
+          }
+        },
+        parallelism);
+  }
+
+  /**
+   * Finds the first vertex in a range without an edge to itself.
+   *
+   * @param edges The edge lookup of the graph.
+   * @param from The first ordinal to check.
+   * @param to The ordinal after the last one to check.
+   * @param cancelled Set once another range has found a vertex without one.
+   * @return The ordinal of the vertex, or -1 if there is none in the range.
+   */
+  private int findMissingSelfLoop(EdgeLookup edges, int from, int to, AtomicBoolean cancelled) {
+    // checks every vertex has an edge to itself, only the verticies given to the graph count so
+    // the set is looked at just for the ones without one
+    for (int vertex = from; vertex < to && !cancelled.get(); vertex++) {
+      if (!edges.contains(vertex, vertex) && verticies.contains(dictionary.getVertex(vertex))) {
+        work.add(vertex - from + 1, 0);
+        return vertex;
       }
     }
-    // if count is equal to the number of verticies, then graph is reflexive
-    if (count == verticies.size()) {
-      return true;
-    } else {
-      return false;
+    work.add(to - from, 0);
+    return -1;
+  }
+
+  /**
+   * Finds why the graph is not reflexive, stopping at the first vertex without an edge to itself.
+   * The verticies are checked in numeric order on the calling thread, so the same vertex is found
+   * whatever the parallelism of the graph.
+   *
+   * @return The smallest vertex without an edge to itself, or an empty list if the graph is
+   *     reflexive.
+   */
+  public List<T> findReflexivityCounterexample() {
+    if (changes != null && changes.isReflexive()) {
+      return new ArrayList<T>();
     }
+    refresh();
+    int vertex = findMissingSelfLoop(getEdgeLookup(), 0, adjacency.size(), new AtomicBoolean());
+    results.reflexive = vertex == -1;
+    return toVerticies(vertex == -1 ? null : new int[] {vertex});
+  }
+
+  /**
+   * Converts ordinals found by a check into verticies.
+   *
+   * @param ordinals The ordinals, or null if the check found nothing.
+   * @return The verticies, or an empty list if there are no ordinals.
+   */
+  private List<T> toVerticies(int[] ordinals) {
+    List<T> result = new ArrayList<T>();
+
+    if (ordinals != null) {
+      for (int ordinal : ordinals) {
+        result.add(dictionary.getVertex(ordinal));
+      }
+    }
+    return result;
   }
 
   /**
@@ -103,21 +489,80 @@ public class Graph<T extends Comparable<T>> {
    * @return boolean True or False if graph is symmetric.
    */
   public boolean isSymmetric() {
+    if (changes != null) {
+      return changes.isSymmetric();
+    }
+    if (results.symmetric == null) {
+      results.symmetric = computeSymmetric();
+    }
+    return results.symmetric;
+  }
+
+  /**
+   * Computes if graph is symmetric.
+   *
+   * @return boolean True or False if graph is symmetric.
+   */
+  private boolean computeSymmetric() {
+    EdgeLookup edges = getEdgeLookup();
+
+    return RangeCheckRunner.run(
+        adjacency,
+        new VertexRangeCheck() {
+          @Override
+          public boolean holds(int from, int to, AtomicBoolean cancelled) {
+            return findEdge(edges, from, to, cancelled, false) == null;
+          }
+        },
+        parallelism);
+  }
+
+  /**
+   * Finds the first edge leaving a range of verticies that either has no edge back, or has an edge
+   * back between two different verticies.
+   *
+   * @param edges The edge lookup of the graph.
+   * @param from The first ordinal to check.
+   * @param to The ordinal after the last one to check.
+   * @param cancelled Set once another range has found an edge.
+   * @param withEdgeBack True to find an edge with an edge back, False for one without.
+   * @return The ordinals of the source and destination of the edge, or null if there is none.
+   */
+  private int[] findEdge(
+      EdgeLookup edges, int from, int to, AtomicBoolean cancelled, boolean withEdgeBack) {
+    int source = from;
 
-    T tempSource;
-    T tempDestination;
-    Edge<T> temp;
-    // loops through all edges and checks if there is an edge from the destination to the source
-    for (Edge<T> edge : edges) {
-      tempSource = edge.getSource();
-      tempDestination = edge.getDestination();
-      temp = new Edge<T>(tempDestination, tempSource);
-      // if there is an edge from the destination to the source, check if it is in the set of edges
-      if (!temp.isIn(edges)) {
-        return false;
+    // loops through the edges and checks if there is an edge from the destination back
+    for (; source < to && !cancelled.get(); source++) {
+      for (int i = adjacency.getStart(source); i < adjacency.getEnd(source); i++) {
+        int destination = adjacency.getTarget(i);
+        if (withEdgeBack
+            ? destination != source && edges.contains(destination, source)
+            : !edges.contains(destination, source)) {
+          // the rows of the range sit next to each other, so the edges scanned are one run
+          work.add(source - from + 1, i + 1 - adjacency.getStart(from));
+          return new int[] {source, destination};
+        }
       }
     }
-    return true;
+    work.add(source - from, adjacency.getStart(source) - adjacency.getStart(from));
+    return null;
+  }
+
+  /**
+   * Finds why the graph is not symmetric, stopping at the first edge without an edge back. The
+   * edges are checked in numeric order on the calling thread.
+   *
+   * @return The source and destination of the edge, or an empty list if the graph is symmetric.
+   */
+  public List<T> findSymmetryCounterexample() {
+    if (changes != null && changes.isSymmetric()) {
+      return new ArrayList<T>();
+    }
+    refresh();
+    int[] edge = findEdge(getEdgeLookup(), 0, adjacency.size(), new AtomicBoolean(), false);
+    results.symmetric = edge == null;
+    return toVerticies(edge);
   }
 
   /**
@@ -126,24 +571,34 @@ public class Graph<T extends Comparable<T>> {
    * @return returns boolean True or False if graph is transitive.
    */
   public boolean isTransitive() {
-
-    Edge<T> temp;
-    // loops through all edges and checks if there is an edge from the source to the destination1
-
-    for (Edge<T> edge : edges) {
-      // checks to see if there is an  edge from the destination1 to desitnation2 then there checks
-      // to see if there is a edge from source to destination2
-      for (Edge<T> edge1 : edges) {
-        if (edge.getDestination() == edge1.getSource()) {
-          temp = new Edge<T>(edge.getSource(), edge1.getDestination());
-          // return false if there is no edge from source to destination2
-          if (!temp.isIn(edges)) {
-            return false;
-          }
-        }
-      }
+    refresh();
+    if (results.transitive == null) {
+      results.transitive = computeTransitive();
     }
-    return true;
+    return results.transitive;
+  }
+
+  /**
+   * Computes if graph is transitive.
+   *
+   * @return returns boolean True or False if graph is transitive.
+   */
+  private boolean computeTransitive() {
+    // compares successor bitsets of each vertex rather than probing every pair of edges
+    return RangeCheckRunner.run(adjacency, new TransitivityChecker(adjacency, work), parallelism);
+  }
+
+  /**
+   * Finds why the graph is not transitive, stopping at the first path u -> v -> w without an edge
+   * u -> w. The paths are checked in numeric order on the calling thread.
+   *
+   * @return The verticies u, v and w, or an empty list if the graph is transitive.
+   */
+  public List<T> findTransitivityCounterexample() {
+    refresh();
+    int[] path = new TransitivityChecker(adjacency, work).findMissingEdge();
+    results.transitive = path == null;
+    return toVerticies(path);
   }
 
   /**
@@ -152,17 +607,50 @@ public class Graph<T extends Comparable<T>> {
    * @return boolean True or False if graph is anti symmetric.
    */
   public boolean isAntiSymmetric() {
+    if (changes != null) {
+      return changes.isAntiSymmetric();
+    }
+    if (results.antiSymmetric == null) {
+      results.antiSymmetric = computeAntiSymmetric();
+    }
+    return results.antiSymmetric;
+  }
 
-    Edge<T> temp;
-    // loops through all edges and checks if there is an edge from the destination to the source
-    for (Edge<T> edge : edges) {
-      temp = new Edge<T>(edge.getDestination(), edge.getSource());
-      // checks to make sure there is no edge from the destination to the source
-      if (temp.isIn(edges) && edge.getSource() != edge.getDestination()) {
-        return false;
-      }
+  /**
+   * Computes if graph is anti symmetric.
+   *
+   * @return boolean True or False if graph is anti symmetric.
+   */
+  private boolean computeAntiSymmetric() {
+    EdgeLookup edges = getEdgeLookup();
+
+    return RangeCheckRunner.run(
+        adjacency,
+        new VertexRangeCheck() {
+          @Override
+          public boolean holds(int from, int to, AtomicBoolean cancelled) {
+            // checks to make sure there is no edge from the destination to the source
+            return findEdge(edges, from, to, cancelled, true) == null;
+          }
+        },
+        parallelism);
+  }
+
+  /**
+   * Finds why the graph is not anti symmetric, stopping at the first edge between two different
+   * verticies that has an edge back. The edges are checked in numeric order on the calling thread.
+   *
+   * @return The source and destination of the edge, or an empty list if the graph is anti
+   *     symmetric.
+   */
+  public List<T> findAntiSymmetryCounterexample() {
+    if (changes != null && changes.isAntiSymmetric()) {
+      return new ArrayList<T>();
     }
-    return true;
+    refresh();
+    int[] edge = findEdge(getEdgeLookup(), 0, adjacency.size(), new AtomicBoolean(), true);
+    results.antiSymmetric = edge == null;
+    return toVerticies(edge);
   }
 
   /**
@@ -171,6 +659,22 @@ public class Graph<T extends Comparable<T>> {
    * @return boolean True or False if graph is equivalence relation graph.
    */
   public boolean isEquivalence() {
+    if (changesRuleOutEquivalence()) {
+      return false;
+    }
+    refresh();
+    if (results.equivalence == null) {
+      results.equivalence = computeEquivalence();
+    }
+    return results.equivalence;
+  }
+
+  /**
+   * Computes if graph is equivalence relation graph.
+   *
+   * @return boolean True or False if graph is equivalence relation graph.
+   */
+  private boolean computeEquivalence() {
     // checks to see if its reflexive, symmetric, and transitive if it is its a equivalence relation
     if (this.isReflexive() && this.isSymmetric() && this.isTransitive()) {
       return true;
@@ -186,39 +690,123 @@ public class Graph<T extends Comparable<T>> {
    */
   public Set<T> getEquivalenceClass(T vertex) {
 
-    Set<T> equivalenceClass = new HashSet<T>();
-    Set<T> newlyAdded;
+    refresh();
     // if its not equivalence class return []
     if (!verticies.contains(vertex)) {
-      return equivalenceClass;
+      return new HashSet<T>();
     }
     if (!this.isEquivalence()) {
-      return equivalenceClass;
-    }
-    equivalenceClass.add(vertex);
-
-    // do loop that loops through while there is a newly added vertex
-    do {
-      newlyAdded = new HashSet<T>();
-      for (Edge<T> edge : edges) {
-        // if there is any connections between vertix and the edges in the graph add the vertex of
-        // the edges to the equivalence class
-        if (equivalenceClass.contains(edge.getSource())) {
-          if (!equivalenceClass.contains(edge.getDestination())) {
-            newlyAdded.add(edge.getDestination());
-          }
-        }
-        if (equivalenceClass.contains(edge.getDestination())) {
-          if (!equivalenceClass.contains(edge.getSource())) {
-            newlyAdded.add(edge.getSource());
-          }
-        }
-      }
-      // adds all newly added verticies to the equivalence class
-      equivalenceClass.addAll(newlyAdded);
-    } while (!newlyAdded.isEmpty());
+      return new HashSet<T>();
+    }
+    EquivalencePartition<T> partition = getPartition();
+    int index = partition.getClassOf(dictionary.getOrdinal(vertex));
+    return new HashSet<T>(partition.getMembers(index));
+  }
+
+  /**
+   * Gets every equivalence class of the graph.
+   *
+   * @return The equivalence classes in numeric order of their smallest vertex, each in numeric
+   *     order, or an empty list if the graph is not an equivalence relation.
+   */
+  public List<Set<T>> getEquivalenceClasses() {
+    List<Set<T>> equivalenceClasses = new ArrayList<Set<T>>();
+
+    refresh();
+    if (!this.isEquivalence()) {
+      return equivalenceClasses;
+    }
+    // the partition already keeps its classes and their members in ordinal order
+    EquivalencePartition<T> partition = getPartition();
+    for (int i = 0; i < partition.getClassCount(); i++) {
+      equivalenceClasses.add(new LinkedHashSet<T>(partition.getMembers(i)));
+    }
+    return equivalenceClasses;
+  }
 
-    return equivalenceClass;
+  /**
+   * Gets the partition of the verticies into connected sets, building it on first use.
+   *
+   * @return The partition of the graph.
+   */
+  private EquivalencePartition<T> getPartition() {
+    if (results.partition == null) {
+      results.partition = new EquivalencePartition<T>(adjacency);
+    }
+    return results.partition;
+  }
+
+  /**
+   * Gets the strongly connected components of the graph, building them on first use.
+   *
+   * @return The strongly connected components of the graph.
+   */
+  private StronglyConnectedComponents<T> getComponents() {
+    refresh();
+    if (results.components == null) {
+      results.components = new StronglyConnectedComponents<T>(adjacency);
+      work.add(adjacency.size(), adjacency.getEdgeCount());
+    }
+    return results.components;
+  }
+
+  /**
+   * Gets every strongly connected component of the graph, each the largest set of verticies that
+   * can all reach one another. The index of a component in the list is its id.
+   *
+   * @return The components in numeric order of their smallest vertex, each in numeric order.
+   */
+  public List<Set<T>> getStronglyConnectedComponents() {
+    StronglyConnectedComponents<T> found = getComponents();
+    List<Set<T>> result = new ArrayList<Set<T>>(found.getComponentCount());
+
+    for (int i = 0; i < found.getComponentCount(); i++) {
+      result.add(new LinkedHashSet<T>(found.getMembers(i)));
+    }
+    return result;
+  }
+
+  /**
+   * Gets the id of the strongly connected component holding the given vertex.
+   *
+   * @param vertex The vertex.
+   * @return The index of its component in {@link #getStronglyConnectedComponents()}, or -1 if the
+   *     vertex is not in the graph.
+   */
+  public int getComponentId(T vertex) {
+    StronglyConnectedComponents<T> found = getComponents();
+    int ordinal = dictionary.getOrdinal(vertex);
+
+    return ordinal == -1 ? -1 : found.getComponentOf(ordinal);
+  }
+
+  /**
+   * Gets the number of verticies in each strongly connected component.
+   *
+   * @return The size of each component, by component id.
+   */
+  public List<Integer> getComponentSizes() {
+    StronglyConnectedComponents<T> found = getComponents();
+    List<Integer> result = new ArrayList<Integer>(found.getComponentCount());
+
+    for (int i = 0; i < found.getComponentCount(); i++) {
+      result.add(found.getSize(i));
+    }
+    return result;
+  }
+
+  /**
+   * Gets the condensation of the graph, which has a vertex for each strongly connected component,
+   * named by its id, and an edge between two components wherever this graph has an edge from one
+   * to the other. It has no cycles, and every query of a graph can be run on it.
+   *
+   * @return The condensation of the graph.
+   */
+  public Graph<Integer> getCondensation() {
+    AdjacencyIndex<Integer> condensation = getComponents().buildCondensation();
+
+    work.add(adjacency.size(), adjacency.getEdgeCount());
+    return new Graph<Integer>(condensation.getDictionary(), condensation);
   }
 
   /**
@@ -227,52 +815,56 @@ public class Graph<T extends Comparable<T>> {
    * @return The list of verticies in the order they were visited.
    */
   public List<T> iterativeBreadthFirstSearch() {
+    refresh();
 
-    Queue<T> queue = new Queue<T>();
+    int[] rootOrdinals = getRootOrdinals();
+    SearchScratch taken = takeScratch();
+    IntQueue queue = taken.getQueue();
+    OrdinalBitmap visited = taken.getVisited();
     List<T> result = new ArrayList<T>();
-    Set<T> visited = new HashSet<T>();
-    Set<T> remain = new HashSet<T>(this.getRoots());
-    Set<T> neighbour;
-    T temp;
-    T dequeued;
-    T index;
+    int dequeued;
 
-    // loops until there are no more verticies to visit
-    while (!remain.isEmpty()) {
-      // choses the minimum root to traverse first
-      temp = Collections.min(remain, comparator);
-      remain.remove(temp);
-
-      queue.enqueue(temp);
+    // loops through the roots in numeric order, which is the order of their ordinals
+    for (int root : rootOrdinals) {
+      if (!visited.add(root)) {
+        continue;
+      }
+      queue.enqueue(root);
 
       // loops until queue is empty
       while (!queue.isEmpty()) {
-        neighbour = new HashSet<T>();
-        // dequeue the first element in the queue
+        // dequeue the first element in the queue, which is visited in the order it was queued
         dequeued = queue.dqueue();
-        // if we havent visisted it add it to the visited list and the result list
-        if (!visited.contains(dequeued)) {
-          visited.add(dequeued);
-          result.add(dequeued);
-        }
-        // loops through all edges and adds the destination vertex to the neighbour list if it hasnt
-        // been visited
-        for (Edge<T> edge : edges) {
-          if (edge.getSource() == dequeued && !visited.contains(edge.getDestination())) {
-
-            neighbour.add(edge.getDestination());
-          }
-        }
-        // adds all the neighbours in order of smallest to largest to the queue and removes them
-        // from the remain list
-        while (neighbour.size() != 0) {
-          index = Collections.min(neighbour, comparator);
-          neighbour.remove(index);
-          queue.enqueue(index);
-          remain.remove(index);
-        }
+        result.add(dictionary.getVertex(dequeued));
+        // adds all the neighbours that have not been queued yet in order of smallest to largest,
+        // marking them so no vertex is queued twice
+        taken.countEdges(queueUnvisitedNeighbours(dequeued, visited, queue));
       }
     }
+    work.add(result.size(), taken.getEdgesScanned());
+    returnScratch(taken);
+    return result;
+  }
+
+  /**
+   * does a breadth first search on the graph, expanding each level across as many threads as the
+   * parallelism of the graph, see {@link ParallelBreadthFirstSearch}. Visits the verticies in the
+   * same order as {@link #iterativeBreadthFirstSearch()}.
+   *
+   * @return The list of verticies in the order they were visited.
+   */
+  public List<T> parallelBreadthFirstSearch() {
+    refresh();
+    int[] order = new ParallelBreadthFirstSearch(adjacency, parallelism).search(getRootOrdinals());
+    List<T> result = new ArrayList<T>(order.length);
+    long edges = 0;
+
+    // every vertex visited has had its whole row scanned
+    for (int ordinal : order) {
+      result.add(dictionary.getVertex(ordinal));
+      edges += adjacency.getEnd(ordinal) - adjacency.getStart(ordinal);
+    }
+    work.add(result.size(), edges);
     return result;
   }
 
@@ -282,187 +874,367 @@ public class Graph<T extends Comparable<T>> {
    * @return The list of verticies in the order they were visited.
    */
   public List<T> iterativeDepthFirstSearch() {
+    refresh();
 
-    Stack<T> stack = new Stack<T>();
+    int[] rootOrdinals = getRootOrdinals();
+    SearchScratch taken = takeScratch();
+    IntStack stack = taken.getStack();
+    OrdinalBitmap visited = taken.getVisited();
+    int[] cursors = taken.getCursors(adjacency);
     List<T> result = new ArrayList<T>();
-    Set<T> visited = new HashSet<T>();
-    Set<T> remain = new HashSet<T>(this.getRoots());
-    Set<T> neighbours = new HashSet<T>();
-    T temp;
-    T min;
-    int count = 0;
+    int min;
 
-    // loops until there are no more verticies to visit
-    while (!remain.isEmpty()) {
-      temp = Collections.min(remain, comparator);
-      remain.remove(temp);
-      stack.push(temp);
-      result.add(temp);
-      visited.add(temp);
+    // loops through the roots in numeric order, which is the order of their ordinals
+    for (int root : rootOrdinals) {
+      if (!visited.add(root)) {
+        continue;
+      }
+      stack.push(root);
+      result.add(dictionary.getVertex(root));
       // loops until stack is empty
       while (!stack.isEmpty()) {
-        temp = stack.peek();
-        // loops through all edges and adds the destination vertex to the neighbour list if it hasnt
-        // been visited
-        for (Edge<T> edge : edges) {
-          if (edge.getSource() == temp && !visited.contains(edge.getDestination())) {
-            neighbours.add(edge.getDestination());
-            count++;
-          }
-        }
+        min = findSmallestUnvisitedNeighbour(stack.peek(), visited, cursors);
         // if there are no neighbours pop the stack
-        if (count == 0) {
-          stack.pop();
+        if (min == -1) {
+          taken.countEdges(popFinished(stack));
         } else {
-          // if there are neighbours add the smallest neighbour to the stack and remove it from the
-          // remain list
-          min = Collections.min(neighbours, comparator);
-          remain.remove(min);
+          // if there are neighbours add the smallest neighbour to the stack
           stack.push(min);
-          result.add(min);
+          result.add(dictionary.getVertex(min));
           visited.add(min);
-          count = 0;
-          neighbours = new HashSet<T>();
         }
       }
     }
+    work.add(result.size(), taken.getEdgesScanned());
+    returnScratch(taken);
     return result;
   }
 
   /**
-   * does a recursive breadth first search on the graph.
+   * does a breadth first search on the graph lazily, finding each vertex only when it is asked
+   * for. Visits the verticies in the same order as {@link #iterativeBreadthFirstSearch()}.
+   *
+   * @return An iterator over the verticies in the order they are visited, which throws a
+   *     ConcurrentModificationException if the graph is changed before it is done.
+   */
+  public Iterator<T> breadthFirstIterator() {
+    refresh();
+    return new SearchIterator.BreadthFirst<T>(this, adjacency, getRootOrdinals(), work);
+  }
+
+  /**
+   * does a depth first search on the graph lazily, finding each vertex only when it is asked for.
+   * Visits the verticies in the same order as {@link #iterativeDepthFirstSearch()}.
+   *
+   * @return An iterator over the verticies in the order they are visited, which throws a
+   *     ConcurrentModificationException if the graph is changed before it is done.
+   */
+  public Iterator<T> depthFirstIterator() {
+    refresh();
+    return new SearchIterator.DepthFirst<T>(this, adjacency, getRootOrdinals(), work);
+  }
+
+  /**
+   * does a breadth first search on the graph lazily, as a sequential stream that stops searching
+   * as soon as it is short circuited, such as by {@link Stream#limit(long)}.
+   *
+   * @return A stream of the verticies in the order they are visited.
+   */
+  public Stream<T> breadthFirstStream() {
+    return toStream(breadthFirstIterator());
+  }
+
+  /**
+   * does a depth first search on the graph lazily, as a sequential stream that stops searching as
+   * soon as it is short circuited, such as by {@link Stream#limit(long)}.
+   *
+   * @return A stream of the verticies in the order they are visited.
+   */
+  public Stream<T> depthFirstStream() {
+    return toStream(depthFirstIterator());
+  }
+
+  /**
+   * Wraps a search in a stream. Each vertex is visited once, so the stream holds no duplicates.
+   *
+   * @param search the search.
+   * @return the stream of the verticies the search visits.
+   */
+  private Stream<T> toStream(Iterator<T> search) {
+    return StreamSupport.stream(
+        Spliterators.spliteratorUnknownSize(
+            search, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL),
+        false);
+  }
+
+  /**
+   * does a recursive breadth first search on the graph. Large graphs recurse on a thread with a
+   * stack big enough for the whole search, see {@link RecursionRunner}.
    *
    * @return The list of verticies in the order they were visited.
    */
   public List<T> recursiveBreadthFirstSearch() {
+    refresh();
 
-    Queue<T> queue = new Queue<T>();
+    int[] rootOrdinals = getRootOrdinals();
+    SearchScratch taken = takeScratch();
+    IntQueue queue = taken.getQueue();
+    OrdinalBitmap visited = taken.getVisited();
     List<T> result = new ArrayList<T>();
-    Set<T> visited = new HashSet<T>();
-    Set<T> remain = new HashSet<T>(this.getRoots());
-    T temp;
 
-    // loops until there are no more verticies to visit
-    while (!remain.isEmpty()) {
-      temp = Collections.min(remain, comparator);
-      remain.remove(temp);
-      queue.enqueue(temp);
-      // recursive call
-      helperRecursiveBreadthFirstSearch(queue, remain, visited, result);
-    }
+    // each vertex is dequeued once, so the recursion is at most one call deeper than there are
+    // verticies
+    RecursionRunner.run(
+        adjacency.size() + 1L,
+        new Runnable() {
+          @Override
+          public void run() {
+            // loops through the roots in numeric order, which is the order of their ordinals
+            for (int root : rootOrdinals) {
+              if (!visited.add(root)) {
+                continue;
+              }
+              queue.enqueue(root);
+              // recursive call
+              work.recordRecursionDepth(helperRecursiveBreadthFirstSearch(taken, result, 1));
+            }
+          }
+        });
 
+    work.add(result.size(), taken.getEdgesScanned());
+    returnScratch(taken);
     return result;
   }
 
   /**
    * Recursive helper method for recursiveBreadthFirstSearch.
    *
-   * @param queue the queue of verticies to visit.
-   * @param remain the set of verticies that have not been visited.
-   * @param visited the set of verticies that have been visited.
+   * @param taken the scratch holding the queue of verticies to visit and those already queued.
    * @param result the list of verticies in the order they were visited.
+   * @param depth the depth of this call.
+   * @return the depth of the deepest call, which is the last one.
    */
-  private void helperRecursiveBreadthFirstSearch(
-      Queue<T> queue, Set<T> remain, Set<T> visited, List<T> result) {
+  private int helperRecursiveBreadthFirstSearch(SearchScratch taken, List<T> result, int depth) {
+    IntQueue queue = taken.getQueue();
+
     // if queue is empty return
     if (queue.isEmpty()) {
-      return;
+      return depth;
     }
-    T index;
-    T dequeued = queue.dqueue();
-    ArrayList<T> neighbours = new ArrayList<T>();
+    int dequeued = queue.dqueue();
+    result.add(dictionary.getVertex(dequeued));
 
-    // if we havent visisted it add it to the visited list and the result list
-    if (!visited.contains(dequeued)) {
-      visited.add(dequeued);
-      result.add(dequeued);
-    }
-
-    // loops through all edges and adds the destination vertex to the neighbour list if it hasnt
-    for (Edge<T> edge : edges) {
-      if (edge.getSource().equals(dequeued) && !visited.contains(edge.getDestination())) {
-        neighbours.add(edge.getDestination());
-      }
-    }
-
-    // adds all the neighbours in order of smallest to largest to the queue and removes them
-    while (neighbours.size() != 0) {
-      index = Collections.min(neighbours, comparator);
-      neighbours.remove(index);
-      queue.enqueue(index);
-      remain.remove(index);
-    }
+    // adds all the neighbours that have not been queued yet in order of smallest to largest
+    taken.countEdges(queueUnvisitedNeighbours(dequeued, taken.getVisited(), queue));
     // Recursive call
-    helperRecursiveBreadthFirstSearch(queue, remain, visited, result);
+    return helperRecursiveBreadthFirstSearch(taken, result, depth + 1);
   }
 
   /**
-   * does a recursive depth first search on the graph.
+   * does a recursive depth first search on the graph. Large graphs recurse on a thread with a
+   * stack big enough for the whole search, see {@link RecursionRunner}.
    *
    * @return The list of verticies in the order they were visited.
    */
   public List<T> recursiveDepthFirstSearch() {
-    Stack<T> stack = new Stack<T>();
+    refresh();
+    int[] rootOrdinals = getRootOrdinals();
+    SearchScratch taken = takeScratch();
+    IntStack stack = taken.getStack();
+    OrdinalBitmap visited = taken.getVisited();
+    int[] cursors = taken.getCursors(adjacency);
     List<T> result = new ArrayList<T>();
-    Set<T> visited = new HashSet<T>();
-    Set<T> remain = new HashSet<T>(this.getRoots());
-    T temp;
 
-    // loops until there are no more verticies to visit
-    while (!remain.isEmpty()) {
-      // choses the minimum root to traverse first
-      temp = Collections.min(remain, comparator);
-      remain.remove(temp);
-      stack.push(temp);
-      visited.add(temp);
-      result.add(temp);
+    // each vertex is pushed and popped once, with one call for each
+    RecursionRunner.run(
+        2L * adjacency.size() + 1,
+        new Runnable() {
+          @Override
+          public void run() {
+            // loops through the roots in numeric order, which is the order of their ordinals
+            for (int root : rootOrdinals) {
+              if (!visited.add(root)) {
+                continue;
+              }
+              stack.push(root);
+              result.add(dictionary.getVertex(root));
 
-      // recursive call
-      helperRecursiveDepthFirstSearch(stack, remain, visited, result);
-    }
+              // recursive call
+              work.recordRecursionDepth(helperRecursiveDepthFirstSearch(taken, cursors, result, 1));
+            }
+          }
+        });
 
+    work.add(result.size(), taken.getEdgesScanned());
+    returnScratch(taken);
     return result;
   }
 
   /**
    * Recursive helper method for recursiveDepthFirstSearch.
    *
-   * @param stack the stack of verticies to visit.
-   * @param remain the set of verticies that have not been visited.
-   * @param visited the set of verticies that have been visited.
+   * @param taken the scratch holding the stack of verticies to visit and those already visited.
+   * @param cursors how far through its neighbours each vertex has been searched.
    * @param result the list of verticies in the order they were visited.
+   * @param depth the depth of this call.
+   * @return the depth of the deepest call, which is the last one.
    */
-  private void helperRecursiveDepthFirstSearch(
-      Stack<T> stack, Set<T> remain, Set<T> visited, List<T> result) {
+  private int helperRecursiveDepthFirstSearch(
+      SearchScratch taken, int[] cursors, List<T> result, int depth) {
+    IntStack stack = taken.getStack();
+    OrdinalBitmap visited = taken.getVisited();
+
     // if stack is empty return
     if (stack.isEmpty()) {
-      return;
+      return depth;
     }
 
-    T current = stack.peek();
-    Set<T> neighbours = new HashSet<T>();
-
-    // loops through all edges and adds the destination vertex to the neighbour list if it hasnt
-    for (Edge<T> edge : edges) {
-      if (edge.getSource().equals(current) && !visited.contains(edge.getDestination())) {
-        neighbours.add(edge.getDestination());
-      }
-    }
+    int min = findSmallestUnvisitedNeighbour(stack.peek(), visited, cursors);
 
     // if there are no neighbours pop the stack
-    if (neighbours.isEmpty()) {
-      stack.pop();
-      helperRecursiveDepthFirstSearch(stack, remain, visited, result);
+    if (min == -1) {
+      taken.countEdges(popFinished(stack));
+      return helperRecursiveDepthFirstSearch(taken, cursors, result, depth + 1);
     } else {
-      // if there are neighbours add the smallest neighbour to the stack and remove it from the
-      T min = Collections.min(neighbours, comparator);
-      remain.remove(min);
+      // if there are neighbours add the smallest neighbour to the stack
       stack.push(min);
       visited.add(min);
-      result.add(min);
+      result.add(dictionary.getVertex(min));
 
       // Recursive call
-      helperRecursiveDepthFirstSearch(stack, remain, visited, result);
+      return helperRecursiveDepthFirstSearch(taken, cursors, result, depth + 1);
     }
   }
+
+  /**
+   * Estimates the bytes of heap used by this graph, including everything it has computed and
+   * cached so far, so grows as more of the graph is queried.
+   *
+   * @return The estimated number of bytes.
+   */
+  public long estimateFootprint() {
+    long total = dictionary.estimateFootprint() + adjacency.estimateFootprint();
+
+    if (results.edgeLookup != null) {
+      total += results.edgeLookup.estimateFootprint();
+    }
+    if (results.partition != null) {
+      total += results.partition.estimateFootprint();
+    }
+    if (results.components != null) {
+      total += results.components.estimateFootprint();
+    }
+    // each root is held as an ordinal and as an entry in a linked set
+    if (results.rootOrdinals != null) {
+      total += 60L * results.rootOrdinals.length;
+    }
+    if (changes != null) {
+      total += changes.estimateFootprint();
+    }
+    SearchScratch idle = scratch.get();
+    if (idle != null) {
+      total += idle.estimateFootprint();
+    }
+    return total;
+  }
+
+  /**
+   * Queues the neighbours of a vertex that have not been queued yet, smallest first, marking each
+   * one as it is queued.
+   *
+   * @param vertex the ordinal of the vertex.
+   * @param visited which verticies have been queued, by ordinal.
+   * @param queue the queue to add the neighbours to.
+   * @return the number of edges scanned, which is the whole row of the vertex.
+   */
+  private int queueUnvisitedNeighbours(int vertex, OrdinalBitmap visited, IntQueue queue) {
+    int start = adjacency.getStart(vertex);
+    int end = adjacency.getEnd(vertex);
+
+    // the row is already sorted, so walking it gives the neighbours smallest first
+    for (int i = start; i < end; i++) {
+      int target = adjacency.getTarget(i);
+      if (visited.add(target)) {
+        queue.enqueue(target);
+      }
+    }
+    return end - start;
+  }
+
+  /**
+   * Pops a vertex that has no unvisited neighbours left off the stack of a depth first search. Its
+   * cursor has walked past every edge in its row by then.
+   *
+   * @param stack the stack of the search.
+   * @return the number of edges scanned, which is the whole row of the vertex.
+   */
+  private int popFinished(IntStack stack) {
+    int vertex = stack.pop();
+
+    return adjacency.getEnd(vertex) - adjacency.getStart(vertex);
+  }
+
+  /**
+   * Takes the scratch of this graph for a search, readied for the current adjacency index. If
+   * another search on this graph has it, a new one is made for this search instead of waiting.
+   *
+   * @return the scratch to search with.
+   */
+  private SearchScratch takeScratch() {
+    SearchScratch taken = scratch.getAndSet(null);
+
+    if (taken == null) {
+      taken = new SearchScratch();
+    }
+    taken.reset(adjacency);
+    return taken;
+  }
+
+  /**
+   * Gives back the scratch taken by a search, for the next search on this graph to reuse. A search
+   * that throws never gives it back, and the next search makes a new one.
+   *
+   * @param taken the scratch the search took.
+   */
+  private void returnScratch(SearchScratch taken) {
+    scratch.set(taken);
+  }
+
+  /**
+   * Finds the smallest neighbour of a vertex that has not been visited. Visited verticies never
+   * become unvisited, so the cursor of the vertex only ever moves forward through its sorted row
+   * and the whole search walks each row once.
+   *
+   * @param vertex the ordinal of the vertex.
+   * @param visited which verticies have been visited, by ordinal.
+   * @param cursors how far through its neighbours each vertex has been searched.
+   * @return the ordinal of the smallest unvisited neighbour, or -1 if there is none.
+   */
+  private int findSmallestUnvisitedNeighbour(int vertex, OrdinalBitmap visited, int[] cursors) {
+    int end = adjacency.getEnd(vertex);
+
+    while (cursors[vertex] < end && visited.contains(adjacency.getTarget(cursors[vertex]))) {
+      cursors[vertex]++;
+    }
+    return cursors[vertex] < end ? adjacency.getTarget(cursors[vertex]) : -1;
+  }
+
+  /**
+   * Everything computed from the edges of a graph. The fields are volatile so threads sharing a
+   * graph only ever see a fully built result, though two threads may both compute the same one.
+   *
+   * @param <T> The type of each vertex.
+   */
+  private static class Results<T extends Comparable<T>> {
+    private volatile EdgeLookup edgeLookup;
+    private volatile Boolean reflexive;
+    private volatile Boolean symmetric;
+    private volatile Boolean transitive;
+    private volatile Boolean antiSymmetric;
+    private volatile Boolean equivalence;
+    private volatile int[] rootOrdinals;
+    private volatile Set<T> roots;
+    private volatile EquivalencePartition<T> partition;
+    private volatile StronglyConnectedComponents<T> components;
+  }
 }
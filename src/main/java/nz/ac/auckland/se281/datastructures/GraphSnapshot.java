@@ -0,0 +1,170 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Saves and opens graphs in a compact binary snapshot, so a large graph can be opened again
+ * without parsing its DOT file. All numbers are big endian ints, laid out as:
+ *
+ * <ul>
+ *   <li>a header of the magic number, the format version, the number of verticies V and the number
+ *       of edges E;
+ *   <li>the V + 1 offsets of the adjacency index, then its E targets;
+ *   <li>the vertex dictionary, each vertex in ordinal order as its length in bytes followed by its
+ *       UTF-8 bytes.
+ * </ul>
+ *
+ * <p>The offsets and targets come straight after the 16 byte header so they stay aligned and can
+ * be copied out of the mapped file in bulk.
+ */
+public class GraphSnapshot {
+  private static final int MAGIC = 0x47534E50;
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 16;
+
+  private GraphSnapshot() {}
+
+  /**
+   * Saves the given graph as a snapshot, replacing the file if it exists.
+   *
+   * @param graph The graph to save.
+   * @param file The file to write.
+   * @throws IOException If the file cannot be written.
+   */
+  public static void save(Graph<String> graph, Path file) throws IOException {
+    AdjacencyIndex<String> adjacency = graph.getAdjacency();
+
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(adjacency.size());
+      out.writeInt(adjacency.getEdgeCount());
+
+      for (int ordinal = 0; ordinal < adjacency.size(); ordinal++) {
+        out.writeInt(adjacency.getStart(ordinal));
+      }
+      out.writeInt(adjacency.getEdgeCount());
+      for (int i = 0; i < adjacency.getEdgeCount(); i++) {
+        out.writeInt(adjacency.getTarget(i));
+      }
+
+      for (int ordinal = 0; ordinal < adjacency.size(); ordinal++) {
+        byte[] bytes = adjacency.getVertex(ordinal).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+    }
+  }
+
+  /**
+   * Opens the graph saved in the given snapshot. The file is memory mapped and the adjacency index
+   * is copied out of it in bulk, so no object is created for any edge. Graphs with at least {@link
+   * OffHeapAdjacencyIndex#getThresholdEdges()} edges are not copied at all, but queried straight
+   * from the mapped file.
+   *
+   * @param file The file to read.
+   * @return The graph in the snapshot.
+   * @throws IOException If the file cannot be read.
+   * @throws IllegalArgumentException If the file is not a valid snapshot.
+   */
+  public static Graph<String> open(Path file) throws IOException, IllegalArgumentException {
+    return open(file, OffHeapAdjacencyIndex.getThresholdEdges());
+  }
+
+  /**
+   * Opens the graph saved in the given snapshot, querying it straight from the mapped file if it
+   * has at least the given number of edges.
+   *
+   * @param file The file to read.
+   * @param offHeapEdges The fewest edges for the graph to be left in the mapped file.
+   * @return The graph in the snapshot.
+   * @throws IOException If the file cannot be read.
+   * @throws IllegalArgumentException If the file is not a valid snapshot.
+   */
+  public static Graph<String> open(Path file, int offHeapEdges)
+      throws IOException, IllegalArgumentException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      try {
+        return read(channel, offHeapEdges);
+      } catch (BufferUnderflowException e) {
+        throw new IllegalArgumentException("Snapshot ends too early", e);
+      }
+    }
+  }
+
+  /**
+   * Reads a graph from a snapshot, mapping the header, the vertex dictionary and the rows of the
+   * adjacency index separately so a file over 2GB can still be mapped.
+   *
+   * @param channel The file.
+   * @param offHeapEdges The fewest edges for the graph to be left in the mapped file.
+   * @return The graph in the snapshot.
+   * @throws IOException If the file cannot be mapped.
+   * @throws IllegalArgumentException If the file is not a valid snapshot.
+   */
+  private static Graph<String> read(FileChannel channel, int offHeapEdges)
+      throws IOException, IllegalArgumentException {
+    long size = channel.size();
+    MappedByteBuffer header =
+        channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, HEADER_BYTES));
+
+    if (size < HEADER_BYTES || header.getInt() != MAGIC) {
+      throw new IllegalArgumentException("Not a graph snapshot");
+    }
+    if (header.getInt() != VERSION) {
+      throw new IllegalArgumentException("Unsupported snapshot version");
+    }
+    int vertexCount = header.getInt();
+    int edgeCount = header.getInt();
+    // checks the counts before allocating anything sized by them
+    if (vertexCount < 0
+        || edgeCount < 0
+        || HEADER_BYTES + 4L * (vertexCount + 1L) + 4L * edgeCount + 4L * vertexCount > size) {
+      throw new IllegalArgumentException("Snapshot counts do not fit the file");
+    }
+
+    long rowBytes = 4L * (vertexCount + 1L) + 4L * edgeCount;
+    MappedByteBuffer names =
+        channel.map(
+            FileChannel.MapMode.READ_ONLY, HEADER_BYTES + rowBytes, size - HEADER_BYTES - rowBytes);
+    List<String> verticies = new ArrayList<String>(vertexCount);
+    byte[] bytes = new byte[64];
+    for (int i = 0; i < vertexCount; i++) {
+      int length = names.getInt();
+      if (length < 0 || length > names.remaining()) {
+        throw new IllegalArgumentException("Vertex " + i + " does not fit the file");
+      }
+      if (length > bytes.length) {
+        bytes = new byte[length];
+      }
+      names.get(bytes, 0, length);
+      verticies.add(new String(bytes, 0, length, StandardCharsets.UTF_8));
+    }
+    VertexDictionary<String> dictionary = VertexDictionary.inOrder(verticies);
+
+    if (edgeCount >= offHeapEdges) {
+      return new Graph<String>(
+          dictionary, OffHeapAdjacencyIndex.map(dictionary, channel, HEADER_BYTES, edgeCount));
+    }
+    int[] offsets = new int[vertexCount + 1];
+    int[] targets = new int[edgeCount];
+    channel
+        .map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, rowBytes)
+        .asIntBuffer()
+        .get(offsets)
+        .get(targets);
+    return new Graph<String>(dictionary, new AdjacencyIndex<String>(dictionary, offsets, targets));
+  }
+}
@@ -0,0 +1,110 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A data structure thats a queue of ints that follows the first in first out principle. The
+ * elements are kept in a ring buffer that only grows when it is full, so once it is big enough it
+ * can be cleared and reused without allocating.
+ */
+public class IntQueue {
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private int[] elements;
+  private int head = 0;
+  private int length = 0;
+
+  /** Constructor for IntQueue. */
+  public IntQueue() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructor for IntQueue with room for the given number of elements before it has to grow.
+   *
+   * @param capacity The initial capacity of the queue.
+   */
+  public IntQueue(int capacity) {
+    elements = new int[Math.max(capacity, 1)];
+  }
+
+  /**
+   * Returns the number of elements in the queue.
+   *
+   * @return The number of elements in the queue.
+   */
+  public int size() {
+    return length;
+  }
+
+  /**
+   * Checks if the queue is empty.
+   *
+   * @return True if the queue is empty, false otherwise.
+   */
+  public boolean isEmpty() {
+    return length == 0;
+  }
+
+  /**
+   * Returns the element at the front of the queue without removing it.
+   *
+   * @return The element at the front of the queue.
+   * @throws NoSuchElementException If the queue is empty.
+   */
+  public int front() throws NoSuchElementException {
+    if (isEmpty()) {
+      throw new NoSuchElementException("Queue is empty");
+    }
+    return elements[head];
+  }
+
+  /**
+   * Adds the given element to the rear of the queue.
+   *
+   * @param element The element to add to the rear of the queue.
+   */
+  public void enqueue(int element) {
+    // if the buffer is full, double it
+    if (length == elements.length) {
+      grow();
+    }
+    elements[(head + length) % elements.length] = element;
+    length++;
+  }
+
+  /**
+   * Removes the element at the front of the queue.
+   *
+   * @return The element at the front of the queue.
+   * @throws NoSuchElementException If the queue is empty.
+   */
+  public int dqueue() throws NoSuchElementException {
+    // if queue is empty, throw exception
+    if (isEmpty()) {
+      throw new NoSuchElementException("Queue is empty");
+    }
+    int result = elements[head];
+    // move the front along the ring
+    head = (head + 1) % elements.length;
+    length--;
+    return result;
+  }
+
+  /** Removes every element from the queue, keeping the buffer for reuse. */
+  public void clear() {
+    head = 0;
+    length = 0;
+  }
+
+  /** Doubles the size of the buffer, unwrapping the elements so the front is at the start. */
+  private void grow() {
+    int[] larger = new int[elements.length * 2];
+    int firstPart = Math.min(length, elements.length - head);
+
+    System.arraycopy(elements, head, larger, 0, firstPart);
+    System.arraycopy(elements, 0, larger, firstPart, length - firstPart);
+    elements = larger;
+    head = 0;
+  }
+}
@@ -0,0 +1,91 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * A data structure thats a stack of ints that follows the last in first out principle. The
+ * elements are kept in an array that only grows when it is full, so once it is big enough it can
+ * be cleared and reused without allocating.
+ */
+public class IntStack {
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private int[] elements;
+  private int length = 0;
+
+  /** Constructor for IntStack. */
+  public IntStack() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructor for IntStack with room for the given number of elements before it has to grow.
+   *
+   * @param capacity The initial capacity of the stack.
+   */
+  public IntStack(int capacity) {
+    elements = new int[Math.max(capacity, 1)];
+  }
+
+  /**
+   * Returns the number of elements in the stack.
+   *
+   * @return The number of elements in the stack.
+   */
+  public int size() {
+    return length;
+  }
+
+  /**
+   * Checks if the stack is empty.
+   *
+   * @return True if the stack is empty, false otherwise.
+   */
+  public boolean isEmpty() {
+    return length == 0;
+  }
+
+  /**
+   * Returns the element at the top of the stack without removing it.
+   *
+   * @return The element at the top of the stack.
+   * @throws RuntimeException If the stack is empty.
+   */
+  public int peek() throws RuntimeException {
+    if (isEmpty()) {
+      throw new RuntimeException("Stack is empty");
+    }
+    return elements[length - 1];
+  }
+
+  /**
+   * Adds the given element to the top of the stack.
+   *
+   * @param element The element to add to the top of the stack.
+   */
+  public void push(int element) {
+    // if the array is full, double it
+    if (length == elements.length) {
+      elements = Arrays.copyOf(elements, elements.length * 2);
+    }
+    elements[length++] = element;
+  }
+
+  /**
+   * Removes the element at the top of the stack and returns it.
+   *
+   * @return The element at the top of the stack.
+   * @throws RuntimeException If the stack is empty.
+   */
+  public int pop() throws RuntimeException {
+    if (isEmpty()) {
+      throw new RuntimeException("Stack is empty");
+    }
+    return elements[--length];
+  }
+
+  /** Removes every element from the stack, keeping the array for reuse. */
+  public void clear() {
+    length = 0;
+  }
+}
@@ -0,0 +1,444 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The edges of a graph that is being changed one vertex or edge at a time. Along with the edges it
+ * keeps the counts that decide the reflexive, symmetric and anti symmetric properties, the in and
+ * out degree of every vertex and the set of roots, updating each of them on every change so they
+ * can be answered without walking the graph again.
+ *
+ * <p>The edges the graph started with are left in its adjacency index, which may be kept outside
+ * the heap, and only the edges added or removed since are hashed here. A vertex only gets a row
+ * of its own on the heap once one of its edges going out changes.
+ *
+ * <p>New verticies are given the next ordinal as they are added, so ordinals here do not follow
+ * the numeric order of the verticies. The graph rebuilds a {@link VertexDictionary} and an {@link
+ * AdjacencyIndex} from it when it needs them for anything else.
+ *
+ * @param <T> The type of each vertex.
+ */
+public class MutableAdjacency<T extends Comparable<T>> {
+  private final List<T> verticies;
+  private final Map<T, Integer> ordinals;
+  private final Set<T> declared;
+  private final AdjacencyIndex<T> base;
+  private final EdgeLookup baseEdges;
+  // edges that are not in the base index, and edges of the base index that have been removed
+  private final EdgeLookup added = new EdgeLookup();
+  private final EdgeLookup removed = new EdgeLookup();
+  private final Set<Integer> roots = new HashSet<Integer>();
+  // the row of a vertex whose edges have not changed is null, and read from the base index
+  private int[][] rows;
+  private int[] outDegree;
+  private int[] inDegree;
+  private int edgeCount;
+
+  // declared verticies without an edge to themselves
+  private int missingSelfLoops;
+  // edges between two different verticies without an edge back
+  private int asymmetricEdges;
+  // pairs of different verticies with an edge each way
+  private int symmetricPairs;
+
+  /**
+   * Constructor for MutableAdjacency, starts from the edges of the given adjacency index.
+   *
+   * @param adjacency The adjacency index of the graph.
+   * @param declared The verticies given to the graph, which is changed as verticies are added.
+   */
+  public MutableAdjacency(AdjacencyIndex<T> adjacency, Set<T> declared) {
+    int size = adjacency.size();
+
+    this.declared = declared;
+    this.verticies = new ArrayList<T>(size);
+    this.ordinals = new HashMap<T, Integer>(size * 2);
+    this.base = adjacency;
+    this.baseEdges = EdgeLookup.of(adjacency);
+    this.rows = new int[Math.max(size, 4)][];
+    this.outDegree = new int[rows.length];
+    this.inDegree = new int[rows.length];
+
+    for (int ordinal = 0; ordinal < size; ordinal++) {
+      T vertex = adjacency.getVertex(ordinal);
+      verticies.add(vertex);
+      ordinals.put(vertex, ordinal);
+      outDegree[ordinal] = adjacency.getEnd(ordinal) - adjacency.getStart(ordinal);
+      for (int i = adjacency.getStart(ordinal); i < adjacency.getEnd(ordinal); i++) {
+        inDegree[adjacency.getTarget(i)]++;
+      }
+    }
+    edgeCount = adjacency.getEdgeCount();
+
+    for (int source = 0; source < size; source++) {
+      if (!baseEdges.contains(source, source) && declared.contains(verticies.get(source))) {
+        missingSelfLoops++;
+      }
+      for (int i = adjacency.getStart(source); i < adjacency.getEnd(source); i++) {
+        int destination = adjacency.getTarget(i);
+        if (destination == source) {
+          continue;
+        }
+        if (!baseEdges.contains(destination, source)) {
+          asymmetricEdges++;
+        } else if (source < destination) {
+          symmetricPairs++;
+        }
+      }
+      updateRoot(source);
+    }
+  }
+
+  /**
+   * Adds a vertex, declaring it as one of the verticies given to the graph.
+   *
+   * @param vertex The vertex to add.
+   * @return boolean True or False if the vertex was added, False if it was already declared.
+   */
+  public boolean addVertex(T vertex) {
+    int ordinal = getOrCreateOrdinal(vertex);
+
+    if (!declared.add(vertex)) {
+      return false;
+    }
+    if (!contains(ordinal, ordinal)) {
+      missingSelfLoops++;
+    }
+    updateRoot(ordinal);
+    return true;
+  }
+
+  /**
+   * Adds an edge, adding either vertex first if it is not in the graph.
+   *
+   * @param source The source vertex.
+   * @param destination The destination vertex.
+   * @return boolean True or False if the edge was added, False if it was already in the graph.
+   */
+  public boolean addEdge(T source, T destination) {
+    addVertex(source);
+    addVertex(destination);
+    int from = ordinals.get(source);
+    int to = ordinals.get(destination);
+
+    if (contains(from, to)) {
+      return false;
+    }
+    // an edge of the base index that was removed is only taken out of the removed edges
+    if (!removed.remove(from, to)) {
+      added.add(from, to);
+    }
+    int[] row = getOwnRow(from);
+    if (outDegree[from] == row.length) {
+      row = Arrays.copyOf(row, Math.max(4, row.length * 2));
+      rows[from] = row;
+    }
+    row[outDegree[from]++] = to;
+    inDegree[to]++;
+    edgeCount++;
+
+    if (from == to) {
+      missingSelfLoops--;
+    } else if (contains(to, from)) {
+      // the edge back was counted as asymmetric until now
+      asymmetricEdges--;
+      symmetricPairs++;
+    } else {
+      asymmetricEdges++;
+    }
+    updateRoot(from);
+    updateRoot(to);
+    return true;
+  }
+
+  /**
+   * Removes an edge. Both verticies stay in the graph.
+   *
+   * @param source The source vertex.
+   * @param destination The destination vertex.
+   * @return boolean True or False if the edge was removed, False if it was not in the graph.
+   */
+  public boolean removeEdge(T source, T destination) {
+    Integer sourceOrdinal = ordinals.get(source);
+    Integer destinationOrdinal = ordinals.get(destination);
+
+    if (sourceOrdinal == null
+        || destinationOrdinal == null
+        || !contains(sourceOrdinal, destinationOrdinal)) {
+      return false;
+    }
+    int from = sourceOrdinal;
+    int to = destinationOrdinal;
+    if (!added.remove(from, to)) {
+      removed.add(from, to);
+    }
+    // rows are not kept in order, so the last neighbour is moved into the gap
+    int[] row = getOwnRow(from);
+    int i = 0;
+    while (row[i] != to) {
+      i++;
+    }
+    row[i] = row[--outDegree[from]];
+    inDegree[to]--;
+    edgeCount--;
+
+    if (from == to) {
+      if (declared.contains(source)) {
+        missingSelfLoops++;
+      }
+    } else if (contains(to, from)) {
+      // the edge back is now asymmetric
+      asymmetricEdges++;
+      symmetricPairs--;
+    } else {
+      asymmetricEdges--;
+    }
+    updateRoot(from);
+    updateRoot(to);
+    return true;
+  }
+
+  /**
+   * Gets the ordinal of a vertex, giving it the next ordinal if it is not in the graph yet.
+   *
+   * @param vertex The vertex.
+   * @return The ordinal of the vertex.
+   */
+  private int getOrCreateOrdinal(T vertex) {
+    Integer ordinal = ordinals.get(vertex);
+
+    if (ordinal != null) {
+      return ordinal;
+    }
+    int next = verticies.size();
+    if (next == rows.length) {
+      rows = Arrays.copyOf(rows, next * 2);
+      outDegree = Arrays.copyOf(outDegree, next * 2);
+      inDegree = Arrays.copyOf(inDegree, next * 2);
+    }
+    rows[next] = new int[0];
+    verticies.add(vertex);
+    ordinals.put(vertex, next);
+    return next;
+  }
+
+  /**
+   * Gets the row of a vertex to change, copying it out of the base index the first time.
+   *
+   * @param ordinal The ordinal of the vertex.
+   * @return The row of the vertex, holding its out degree of neighbours followed by free space.
+   */
+  private int[] getOwnRow(int ordinal) {
+    if (rows[ordinal] == null) {
+      int[] row = new int[outDegree[ordinal]];
+      for (int i = 0; i < row.length; i++) {
+        row[i] = base.getTarget(base.getStart(ordinal) + i);
+      }
+      rows[ordinal] = row;
+    }
+    return rows[ordinal];
+  }
+
+  /**
+   * Checks if there is an edge between two ordinals, in the base index or added since.
+   *
+   * @param source The ordinal of the source vertex.
+   * @param destination The ordinal of the destination vertex.
+   * @return boolean True or False if the edge is in the graph.
+   */
+  private boolean contains(int source, int destination) {
+    if (added.contains(source, destination)) {
+      return true;
+    }
+    return source < base.size()
+        && destination < base.size()
+        && baseEdges.contains(source, destination)
+        && !removed.contains(source, destination);
+  }
+
+  /**
+   * Adds or removes a vertex from the roots after its degrees may have changed.
+   *
+   * @param ordinal The ordinal of the vertex.
+   */
+  private void updateRoot(int ordinal) {
+    // a root has no edges coming in, and at least one edge going out
+    if (inDegree[ordinal] == 0
+        && outDegree[ordinal] > 0
+        && declared.contains(verticies.get(ordinal))) {
+      roots.add(ordinal);
+    } else {
+      roots.remove(ordinal);
+    }
+  }
+
+  /**
+   * Checks if there is an edge from the source to the destination in constant time.
+   *
+   * @param source The source vertex.
+   * @param destination The destination vertex.
+   * @return boolean True or False if the edge is in the graph.
+   */
+  public boolean hasEdge(T source, T destination) {
+    Integer from = ordinals.get(source);
+    Integer to = ordinals.get(destination);
+
+    return from != null && to != null && contains(from, to);
+  }
+
+  /**
+   * Checks if every declared vertex has an edge to itself.
+   *
+   * @return boolean True or False if the graph is reflexive.
+   */
+  public boolean isReflexive() {
+    return missingSelfLoops == 0;
+  }
+
+  /**
+   * Checks if every edge has an edge back.
+   *
+   * @return boolean True or False if the graph is symmetric.
+   */
+  public boolean isSymmetric() {
+    return asymmetricEdges == 0;
+  }
+
+  /**
+   * Checks if no two different verticies have an edge each way.
+   *
+   * @return boolean True or False if the graph is anti symmetric.
+   */
+  public boolean isAntiSymmetric() {
+    return symmetricPairs == 0;
+  }
+
+  /**
+   * Gets the verticies with no edges coming in and at least one going out, sorting only the roots
+   * rather than every vertex.
+   *
+   * @return The roots in numeric order.
+   */
+  public Set<T> getRoots() {
+    List<T> found = new ArrayList<T>(roots.size());
+
+    for (int ordinal : roots) {
+      found.add(verticies.get(ordinal));
+    }
+    Set<T> result = new LinkedHashSet<T>();
+    for (int i : VertexDictionary.sort(found)) {
+      result.add(found.get(i));
+    }
+    return Collections.unmodifiableSet(result);
+  }
+
+  /**
+   * Gets the number of edges coming in to a vertex.
+   *
+   * @param vertex The vertex.
+   * @return The in degree, or -1 if the vertex is not in the graph.
+   */
+  public int getInDegree(T vertex) {
+    Integer ordinal = ordinals.get(vertex);
+
+    return ordinal == null ? -1 : inDegree[ordinal];
+  }
+
+  /**
+   * Gets the number of edges going out of a vertex.
+   *
+   * @param vertex The vertex.
+   * @return The out degree, or -1 if the vertex is not in the graph.
+   */
+  public int getOutDegree(T vertex) {
+    Integer ordinal = ordinals.get(vertex);
+
+    return ordinal == null ? -1 : outDegree[ordinal];
+  }
+
+  /**
+   * Numbers the verticies in numeric order again. A vertex that was only in the graph as the end of
+   * an edge is left out once all of its edges have been removed, as it would be if the graph was
+   * built again from its verticies and edges.
+   *
+   * @return The dictionary of the verticies.
+   */
+  public VertexDictionary<T> toDictionary() {
+    List<T> found = new ArrayList<T>(verticies.size());
+
+    for (int ordinal = 0; ordinal < verticies.size(); ordinal++) {
+      if (inDegree[ordinal] > 0
+          || outDegree[ordinal] > 0
+          || declared.contains(verticies.get(ordinal))) {
+        found.add(verticies.get(ordinal));
+      }
+    }
+    return new VertexDictionary<T>(found);
+  }
+
+  /**
+   * Builds an adjacency index of the edges, with ordinals from the given dictionary. The rows are
+   * laid out in place, so the only array as long as the edges is the one the index keeps.
+   *
+   * @param dictionary The dictionary from {@link #toDictionary()}.
+   * @return The adjacency index.
+   */
+  public AdjacencyIndex<T> toAdjacencyIndex(VertexDictionary<T> dictionary) {
+    int[] renumbered = new int[verticies.size()];
+    int[] offsets = new int[dictionary.size() + 1];
+    int[] targets = new int[edgeCount];
+
+    // verticies left out of the dictionary have no edges, so are never renumbered
+    for (int ordinal = 0; ordinal < renumbered.length; ordinal++) {
+      renumbered[ordinal] = dictionary.getOrdinal(verticies.get(ordinal));
+      if (outDegree[ordinal] > 0) {
+        offsets[renumbered[ordinal] + 1] = outDegree[ordinal];
+      }
+    }
+    for (int i = 0; i < dictionary.size(); i++) {
+      offsets[i + 1] += offsets[i];
+    }
+    for (int source = 0; source < renumbered.length; source++) {
+      if (outDegree[source] == 0) {
+        continue;
+      }
+      int start = offsets[renumbered[source]];
+      for (int i = 0; i < outDegree[source]; i++) {
+        int target =
+            rows[source] == null ? base.getTarget(base.getStart(source) + i) : rows[source][i];
+        targets[start + i] = renumbered[target];
+      }
+      // renumbering and changes both leave rows out of order
+      Arrays.sort(targets, start, start + outDegree[source]);
+    }
+    return new AdjacencyIndex<T>(dictionary, offsets, targets);
+  }
+
+  /**
+   * Estimates the bytes of heap used by the edges and counts.
+   *
+   * @return The estimated number of bytes.
+   */
+  public long estimateFootprint() {
+    long total =
+        baseEdges.estimateFootprint()
+            + added.estimateFootprint()
+            + removed.estimateFootprint()
+            + 16L * rows.length
+            + 60L * roots.size();
+
+    // each vertex is held in the list and the map, and may have a row of its own
+    for (int ordinal = 0; ordinal < verticies.size(); ordinal++) {
+      total += 60 + (rows[ordinal] == null ? 0 : 16 + 4L * rows[ordinal].length);
+    }
+    return total;
+  }
+}
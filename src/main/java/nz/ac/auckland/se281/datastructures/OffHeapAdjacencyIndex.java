@@ -0,0 +1,262 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An adjacency index that keeps its offsets and targets outside the heap, so graphs with hundreds
+ * of millions of edges can be queried without the heap having to hold them. The rows are either
+ * copied into direct buffers, which count against the direct memory limit of the JVM rather than
+ * the heap, or mapped straight from a snapshot file, which only uses the page cache.
+ *
+ * <p>A single buffer can hold at most 2GB, so the ints are split across buffers of 2^28 ints
+ * each. Everything else about the index is the same as {@link AdjacencyIndex}, so a graph can use
+ * either without knowing which it has.
+ *
+ * @param <T> The type of each vertex.
+ */
+public class OffHeapAdjacencyIndex<T extends Comparable<T>> extends AdjacencyIndex<T> {
+  /** Graphs with at least this many edges keep their index outside the heap. */
+  public static final int THRESHOLD_EDGES = 1 << 24;
+
+  /**
+   * The system property that replaces {@link #THRESHOLD_EDGES} when set, such as to 0 to keep the
+   * index of every graph outside the heap.
+   */
+  public static final String THRESHOLD_PROPERTY = "se281.offHeapEdges";
+
+  private static final int CHUNK_BITS = 28;
+  private static final int CHUNK_INTS = 1 << CHUNK_BITS;
+  private static final int CHUNK_MASK = CHUNK_INTS - 1;
+
+  private final IntBuffer[] offsets;
+  private final IntBuffer[] targets;
+  private final int edgeCount;
+
+  /**
+   * Constructor for OffHeapAdjacencyIndex, uses rows that have already been placed in buffers.
+   *
+   * @param dictionary The ordinals of the verticies of the graph.
+   * @param offsets The start of the row of each vertex, followed by the number of edges.
+   * @param targets The ordinal of the destination of each edge, row by row.
+   * @param edgeCount The number of edges.
+   */
+  private OffHeapAdjacencyIndex(
+      VertexDictionary<T> dictionary, IntBuffer[] offsets, IntBuffer[] targets, int edgeCount) {
+    super(dictionary);
+    this.offsets = offsets;
+    this.targets = targets;
+    this.edgeCount = edgeCount;
+  }
+
+  /**
+   * Gets the fewest edges for a graph to keep its index outside the heap, which is {@link
+   * #THRESHOLD_EDGES} unless the {@link #THRESHOLD_PROPERTY} system property is set. The property
+   * is read each time, so it applies to every graph loaded or changed after it is set.
+   *
+   * @return The number of edges.
+   */
+  public static int getThresholdEdges() {
+    return Integer.getInteger(THRESHOLD_PROPERTY, THRESHOLD_EDGES);
+  }
+
+  /**
+   * Moves an index outside the heap if it has at least {@link #getThresholdEdges()} edges, leaving
+   * smaller ones where they are.
+   *
+   * @param <T> The type of each vertex.
+   * @param adjacency The index.
+   * @return The index, outside the heap if it is large.
+   */
+  public static <T extends Comparable<T>> AdjacencyIndex<T> moveIfLarge(
+      AdjacencyIndex<T> adjacency) {
+    if (adjacency.isOffHeap() || adjacency.getEdgeCount() < getThresholdEdges()) {
+      return adjacency;
+    }
+    return copyOf(adjacency);
+  }
+
+  /**
+   * Copies an index into direct buffers outside the heap.
+   *
+   * @param <T> The type of each vertex.
+   * @param adjacency The index to copy.
+   * @return The copy.
+   */
+  public static <T extends Comparable<T>> OffHeapAdjacencyIndex<T> copyOf(
+      AdjacencyIndex<T> adjacency) {
+    IntBuffer[] offsets = allocate(adjacency.size() + 1L);
+    IntBuffer[] targets = allocate(adjacency.getEdgeCount());
+
+    for (int ordinal = 0; ordinal < adjacency.size(); ordinal++) {
+      put(offsets, ordinal, adjacency.getStart(ordinal));
+    }
+    put(offsets, adjacency.size(), adjacency.getEdgeCount());
+    for (int i = 0; i < adjacency.getEdgeCount(); i++) {
+      put(targets, i, adjacency.getTarget(i));
+    }
+    return new OffHeapAdjacencyIndex<T>(
+        adjacency.getDictionary(), offsets, targets, adjacency.getEdgeCount());
+  }
+
+  /**
+   * Maps the rows of an index straight from a file, laid out as the offsets followed by the
+   * targets in big endian ints, as a {@link GraphSnapshot} saves them. Nothing is copied, so the
+   * file must not be changed while the index is in use.
+   *
+   * @param <T> The type of each vertex.
+   * @param dictionary The ordinals of the verticies of the graph.
+   * @param channel The file, which can be closed once the index has been mapped.
+   * @param position Where the offsets start in the file.
+   * @param edgeCount The number of edges.
+   * @return The mapped index.
+   * @throws IOException If the file cannot be mapped.
+   * @throws IllegalArgumentException If the rows do not fit the dictionary and targets.
+   */
+  public static <T extends Comparable<T>> OffHeapAdjacencyIndex<T> map(
+      VertexDictionary<T> dictionary, FileChannel channel, long position, int edgeCount)
+      throws IOException, IllegalArgumentException {
+    long offsetCount = dictionary.size() + 1L;
+    IntBuffer[] offsets = map(channel, position, offsetCount);
+    IntBuffer[] targets = map(channel, position + 4 * offsetCount, edgeCount);
+    OffHeapAdjacencyIndex<T> adjacency =
+        new OffHeapAdjacencyIndex<T>(dictionary, offsets, targets, edgeCount);
+
+    adjacency.validate();
+    return adjacency;
+  }
+
+  /**
+   * Allocates direct buffers in native order to hold the given number of ints.
+   *
+   * @param count The number of ints.
+   * @return The buffers, every one full size but the last.
+   */
+  private static IntBuffer[] allocate(long count) {
+    IntBuffer[] chunks = new IntBuffer[chunkCount(count)];
+
+    for (int i = 0; i < chunks.length; i++) {
+      int ints = (int) Math.min(CHUNK_INTS, count - ((long) i << CHUNK_BITS));
+      ByteBuffer bytes = ByteBuffer.allocateDirect(4 * ints).order(ByteOrder.nativeOrder());
+      chunks[i] = bytes.asIntBuffer();
+    }
+    return chunks;
+  }
+
+  /**
+   * Maps the given number of big endian ints of a file, read only.
+   *
+   * @param channel The file.
+   * @param position Where the ints start in the file.
+   * @param count The number of ints.
+   * @return The buffers, every one full size but the last.
+   * @throws IOException If the file cannot be mapped.
+   */
+  private static IntBuffer[] map(FileChannel channel, long position, long count)
+      throws IOException {
+    IntBuffer[] chunks = new IntBuffer[chunkCount(count)];
+
+    for (int i = 0; i < chunks.length; i++) {
+      long start = (long) i << CHUNK_BITS;
+      long ints = Math.min(CHUNK_INTS, count - start);
+      chunks[i] =
+          channel.map(FileChannel.MapMode.READ_ONLY, position + 4 * start, 4 * ints).asIntBuffer();
+    }
+    return chunks;
+  }
+
+  /**
+   * Gets the number of buffers needed to hold the given number of ints.
+   *
+   * @param count The number of ints.
+   * @return The number of buffers, at least one.
+   */
+  private static int chunkCount(long count) {
+    return (int) Math.max(1, (count + CHUNK_MASK) >>> CHUNK_BITS);
+  }
+
+  /**
+   * Reads an int from a list of buffers.
+   *
+   * @param chunks The buffers.
+   * @param index The position of the int across all of the buffers.
+   * @return The int.
+   */
+  private static int get(IntBuffer[] chunks, int index) {
+    return chunks[index >>> CHUNK_BITS].get(index & CHUNK_MASK);
+  }
+
+  /**
+   * Writes an int to a list of buffers.
+   *
+   * @param chunks The buffers.
+   * @param index The position of the int across all of the buffers.
+   * @param value The int.
+   */
+  private static void put(IntBuffer[] chunks, int index, int value) {
+    chunks[index >>> CHUNK_BITS].put(index & CHUNK_MASK, value);
+  }
+
+  /**
+   * Checks that mapped rows fit the dictionary and targets, as the arrays given to {@link
+   * AdjacencyIndex} are checked, so a damaged file cannot send a query out of range.
+   *
+   * @throws IllegalArgumentException If the rows do not fit the dictionary and targets.
+   */
+  private void validate() throws IllegalArgumentException {
+    if (get(offsets, 0) != 0 || get(offsets, size()) != edgeCount) {
+      throw new IllegalArgumentException("Offsets do not match the verticies and edges");
+    }
+    for (int i = 0; i < size(); i++) {
+      if (getStart(i) > getEnd(i)) {
+        throw new IllegalArgumentException("Row " + i + " ends before it starts");
+      }
+      for (int j = getStart(i); j < getEnd(i); j++) {
+        if (getTarget(j) < 0
+            || getTarget(j) >= size()
+            || (j > getStart(i) && getTarget(j) <= getTarget(j - 1))) {
+          throw new IllegalArgumentException("Row " + i + " is not sorted or not in range");
+        }
+      }
+    }
+  }
+
+  @Override
+  public int getStart(int ordinal) {
+    return get(offsets, ordinal);
+  }
+
+  @Override
+  public int getEnd(int ordinal) {
+    return get(offsets, ordinal + 1);
+  }
+
+  @Override
+  public int getTarget(int position) {
+    return get(targets, position);
+  }
+
+  @Override
+  public int getEdgeCount() {
+    return edgeCount;
+  }
+
+  @Override
+  public boolean isOffHeap() {
+    return true;
+  }
+
+  /**
+   * Estimates the bytes of heap used by the index, which is only the buffer objects as the rows
+   * themselves are outside the heap.
+   *
+   * @return The estimated number of bytes.
+   */
+  @Override
+  public long estimateFootprint() {
+    return 48 + 64L * (offsets.length + targets.length);
+  }
+}
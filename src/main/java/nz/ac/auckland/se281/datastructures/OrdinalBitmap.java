@@ -0,0 +1,95 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * A set of vertex ordinals kept as one bit each in an array of longs, so a graph of 100,000
+ * verticies needs about 12KB. It can be cleared and reused for a graph of up to the size it has
+ * grown to without allocating.
+ */
+public class OrdinalBitmap {
+  private long[] words;
+  private int size;
+
+  /**
+   * Constructor for OrdinalBitmap, with room for the ordinals below the given size.
+   *
+   * @param size The number of ordinals.
+   */
+  public OrdinalBitmap(int size) {
+    this.words = new long[wordsFor(size)];
+    this.size = size;
+  }
+
+  /**
+   * Gets the number of longs needed to hold a bit for each ordinal.
+   *
+   * @param size The number of ordinals.
+   * @return The number of longs.
+   */
+  private static int wordsFor(int size) {
+    return (size + 63) >>> 6;
+  }
+
+  /**
+   * Empties the set and makes room for the ordinals below the given size, only clearing the words
+   * that are used and only allocating if it has never been that big.
+   *
+   * @param size The number of ordinals.
+   */
+  public void reset(int size) {
+    int needed = wordsFor(size);
+
+    if (needed > words.length) {
+      words = new long[needed];
+    } else {
+      Arrays.fill(words, 0, needed, 0L);
+    }
+    this.size = size;
+  }
+
+  /**
+   * Gets the number of ordinals the set has room for.
+   *
+   * @return The number of ordinals.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Checks if an ordinal is in the set.
+   *
+   * @param ordinal The ordinal.
+   * @return boolean True or False if the ordinal is in the set.
+   */
+  public boolean contains(int ordinal) {
+    return (words[ordinal >>> 6] & (1L << ordinal)) != 0;
+  }
+
+  /**
+   * Adds an ordinal to the set.
+   *
+   * @param ordinal The ordinal.
+   * @return boolean True or False if the ordinal was added, False if it was already in the set.
+   */
+  public boolean add(int ordinal) {
+    int index = ordinal >>> 6;
+    long bit = 1L << ordinal;
+
+    if ((words[index] & bit) != 0) {
+      return false;
+    }
+    words[index] |= bit;
+    return true;
+  }
+
+  /**
+   * Estimates the bytes of heap used by the set.
+   *
+   * @return The estimated number of bytes.
+   */
+  public long estimateFootprint() {
+    return 32 + 8L * words.length;
+  }
+}
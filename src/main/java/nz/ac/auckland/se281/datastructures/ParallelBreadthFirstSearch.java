@@ -0,0 +1,300 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A breadth first search that expands one level of the search at a time, spreading the edges of
+ * each level across the threads of a fork join pool, while still visiting the verticies in exactly
+ * the order the sequential search does.
+ *
+ * <p>The sequential search gives each new vertex to the first vertex of the level, in queue order,
+ * that has an edge to it. Each level is expanded in two passes that rebuild that choice:
+ *
+ * <ol>
+ *   <li>every vertex of the level offers its position in the visit order to each unvisited
+ *       neighbour, and each neighbour keeps the smallest offer with an atomic minimum;
+ *   <li>every vertex of the level collects, in the order of its row, the neighbours that kept its
+ *       offer, and marks them in an atomic visited bitmap.
+ * </ol>
+ *
+ * <p>The collected neighbours are then appended chunk by chunk, which puts them in queue order of
+ * their parents and numeric order within each parent. Levels with little work are expanded on the
+ * calling thread. Each pass runs one worker for each thread of the parallelism, on the pool shared
+ * with {@link RangeCheckRunner}, and the workers take the chunks of the level in turn until there
+ * are none left, so a worker that finishes early takes more of them.
+ */
+public class ParallelBreadthFirstSearch {
+  /** Levels with fewer edges than this are expanded on the calling thread. */
+  private static final int SEQUENTIAL_LEVEL_EDGES = 1 << 13;
+
+  /** The fewest verticies of a level given to one chunk. */
+  private static final int MIN_CHUNK_VERTICES = 64;
+
+  /** Chunks per thread, so a thread that finishes early can take more of them than a slower one. */
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+  private static final VarHandle OFFERS = MethodHandles.arrayElementVarHandle(int[].class);
+
+  private final AdjacencyIndex<?> adjacency;
+  private final int parallelism;
+  private final long[] visited;
+  private final int[] offers;
+  private final int[] order;
+  private int count;
+
+  /**
+   * Constructor for ParallelBreadthFirstSearch.
+   *
+   * @param adjacency The adjacency index of the graph to search.
+   * @param parallelism The most threads to search with, 1 searches on the calling thread.
+   */
+  public ParallelBreadthFirstSearch(AdjacencyIndex<?> adjacency, int parallelism) {
+    this.adjacency = adjacency;
+    this.parallelism = parallelism;
+    this.visited = new long[(adjacency.size() + 63) >>> 6];
+    this.offers = new int[adjacency.size()];
+    this.order = new int[adjacency.size()];
+    Arrays.fill(offers, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Searches from each root in turn, skipping roots already visited from an earlier one.
+   *
+   * @param roots The ordinals of the roots in the order to search them.
+   * @return The ordinals of the verticies in the order they were visited.
+   */
+  public int[] search(int[] roots) {
+    for (int root : roots) {
+      if (isVisited(root)) {
+        continue;
+      }
+      visit(root);
+      order[count++] = root;
+
+      // the verticies of each level sit together in the visit order, from start to end
+      int start = count - 1;
+      int end = count;
+      while (start < end) {
+        if (parallelism > 1 && countEdges(start, end) >= SEQUENTIAL_LEVEL_EDGES) {
+          expandInParallel(start, end);
+        } else {
+          expand(start, end);
+        }
+        start = end;
+        end = count;
+      }
+    }
+    return Arrays.copyOf(order, count);
+  }
+
+  /**
+   * Counts the edges leaving the verticies of a level.
+   *
+   * @param start The position of the first vertex of the level in the visit order.
+   * @param end The position after the last vertex of the level.
+   * @return The number of edges.
+   */
+  private long countEdges(int start, int end) {
+    long edges = 0;
+
+    for (int i = start; i < end; i++) {
+      edges += adjacency.getEnd(order[i]) - adjacency.getStart(order[i]);
+    }
+    return edges;
+  }
+
+  /**
+   * Expands a level on the calling thread, appending each unvisited neighbour as it is found.
+   *
+   * @param start The position of the first vertex of the level in the visit order.
+   * @param end The position after the last vertex of the level.
+   */
+  private void expand(int start, int end) {
+    for (int i = start; i < end; i++) {
+      int vertex = order[i];
+      for (int j = adjacency.getStart(vertex); j < adjacency.getEnd(vertex); j++) {
+        int neighbour = adjacency.getTarget(j);
+        if (!isVisited(neighbour)) {
+          visit(neighbour);
+          order[count++] = neighbour;
+        }
+      }
+    }
+  }
+
+  /**
+   * Expands a level across the pool, then appends the neighbours each chunk collected in order.
+   *
+   * @param start The position of the first vertex of the level in the visit order.
+   * @param end The position after the last vertex of the level.
+   */
+  private void expandInParallel(int start, int end) {
+    int chunks =
+        Math.max(1, Math.min(parallelism * CHUNKS_PER_THREAD, (end - start) / MIN_CHUNK_VERTICES));
+    int workers = Math.min(parallelism, chunks);
+    int[][] collected = new int[chunks][];
+    int[] sizes = new int[chunks];
+    ForkJoinPool pool = RangeCheckRunner.getPool();
+
+    pool.invoke(
+        new LevelTask(start, end, chunks, workers, new AtomicInteger(), collected, sizes, false));
+    pool.invoke(
+        new LevelTask(start, end, chunks, workers, new AtomicInteger(), collected, sizes, true));
+
+    for (int chunk = 0; chunk < chunks; chunk++) {
+      System.arraycopy(collected[chunk], 0, order, count, sizes[chunk]);
+      count += sizes[chunk];
+    }
+  }
+
+  /**
+   * Offers the position of each vertex in a chunk of a level to its unvisited neighbours.
+   *
+   * @param from The position of the first vertex of the chunk in the visit order.
+   * @param to The position after the last vertex of the chunk.
+   */
+  private void offer(int from, int to) {
+    for (int i = from; i < to; i++) {
+      int vertex = order[i];
+      for (int j = adjacency.getStart(vertex); j < adjacency.getEnd(vertex); j++) {
+        int neighbour = adjacency.getTarget(j);
+        if (isVisited(neighbour)) {
+          continue;
+        }
+        // keeps the smallest position, which is the parent the sequential search would pick
+        int current = (int) OFFERS.getVolatile(offers, neighbour);
+        while (i < current && !OFFERS.compareAndSet(offers, neighbour, current, i)) {
+          current = (int) OFFERS.getVolatile(offers, neighbour);
+        }
+      }
+    }
+  }
+
+  /**
+   * Collects the neighbours that kept the offer of each vertex in a chunk of a level, in order.
+   *
+   * @param from The position of the first vertex of the chunk in the visit order.
+   * @param to The position after the last vertex of the chunk.
+   * @param collected Where the collected neighbours of each chunk are kept.
+   * @param sizes The number of neighbours collected by each chunk.
+   * @param chunk The index of the chunk.
+   */
+  private void collect(int from, int to, int[][] collected, int[] sizes, int chunk) {
+    int[] children = new int[16];
+    int size = 0;
+
+    for (int i = from; i < to; i++) {
+      int vertex = order[i];
+      for (int j = adjacency.getStart(vertex); j < adjacency.getEnd(vertex); j++) {
+        int neighbour = adjacency.getTarget(j);
+        // positions are never reused, so only this vertex can have made the offer that was kept
+        if (offers[neighbour] == i) {
+          if (size == children.length) {
+            children = Arrays.copyOf(children, size * 2);
+          }
+          children[size++] = neighbour;
+          WORDS.getAndBitwiseOr(visited, neighbour >>> 6, 1L << neighbour);
+        }
+      }
+    }
+    collected[chunk] = children;
+    sizes[chunk] = size;
+  }
+
+  /**
+   * Checks if a vertex has been visited.
+   *
+   * @param vertex The ordinal of the vertex.
+   * @return boolean True or False if the vertex has been visited.
+   */
+  private boolean isVisited(int vertex) {
+    return (visited[vertex >>> 6] & (1L << vertex)) != 0;
+  }
+
+  /**
+   * Marks a vertex as visited from the calling thread.
+   *
+   * @param vertex The ordinal of the vertex.
+   */
+  private void visit(int vertex) {
+    visited[vertex >>> 6] |= 1L << vertex;
+  }
+
+  /**
+   * Runs one pass of a level with a range of its workers, splitting the range in two until there
+   * is a single worker, which then takes chunks until every chunk of the level has been taken.
+   */
+  private class LevelTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final int start;
+    private final int end;
+    private final int chunks;
+    private final int workers;
+    private final AtomicInteger nextChunk;
+    private final int[][] collected;
+    private final int[] sizes;
+    private final boolean collecting;
+
+    /**
+     * Constructor for LevelTask.
+     *
+     * @param start The position of the first vertex of the level in the visit order.
+     * @param end The position after the last vertex of the level.
+     * @param chunks The number of chunks the level is split into.
+     * @param workers The number of workers this task runs.
+     * @param nextChunk The next chunk for a worker of the pass to take.
+     * @param collected Where the collected neighbours of each chunk are kept.
+     * @param sizes The number of neighbours collected by each chunk.
+     * @param collecting False for the offering pass, True for the collecting pass.
+     */
+    LevelTask(
+        int start,
+        int end,
+        int chunks,
+        int workers,
+        AtomicInteger nextChunk,
+        int[][] collected,
+        int[] sizes,
+        boolean collecting) {
+      this.start = start;
+      this.end = end;
+      this.chunks = chunks;
+      this.workers = workers;
+      this.nextChunk = nextChunk;
+      this.collected = collected;
+      this.sizes = sizes;
+      this.collecting = collecting;
+    }
+
+    @Override
+    protected void compute() {
+      if (workers > 1) {
+        int half = workers / 2;
+        invokeAll(
+            new LevelTask(start, end, chunks, half, nextChunk, collected, sizes, collecting),
+            new LevelTask(
+                start, end, chunks, workers - half, nextChunk, collected, sizes, collecting));
+        return;
+      }
+
+      for (int chunk = nextChunk.getAndIncrement();
+          chunk < chunks;
+          chunk = nextChunk.getAndIncrement()) {
+        int from = start + (int) ((long) (end - start) * chunk / chunks);
+        int to = start + (int) ((long) (end - start) * (chunk + 1) / chunks);
+        if (collecting) {
+          collect(from, to, collected, sizes, chunk);
+        } else {
+          offer(from, to);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs a {@link VertexRangeCheck} over every vertex of a graph, either on the calling thread or
+ * split into ranges across a fork join pool. Ranges are split so each holds about the same number
+ * of edges, and the first range to find a violation cancels all the others.
+ *
+ * <p>Every check shares one pool with a thread for each processor. A check is split into no more
+ * ranges than its parallelism, so it never has more threads working on it than it asked for,
+ * whatever parallelism other checks are using the pool with.
+ */
+public class RangeCheckRunner {
+  /** Ranges with fewer edges and verticies than this are checked without splitting further. */
+  private static final int LEAF_WORK = 1 << 12;
+
+  /** The pool shared by every graph, which only starts its threads once they are needed. */
+  private static final ForkJoinPool POOL =
+      new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+  private RangeCheckRunner() {}
+
+  /**
+   * Checks that the property holds for every vertex.
+   *
+   * @param adjacency The adjacency index of the graph.
+   * @param check The property to check.
+   * @param parallelism The most threads to check with, 1 checks on the calling thread.
+   * @return boolean True or False if the property holds for every vertex.
+   */
+  public static boolean run(AdjacencyIndex<?> adjacency, VertexRangeCheck check, int parallelism) {
+    AtomicBoolean cancelled = new AtomicBoolean();
+
+    if (parallelism <= 1 || adjacency.size() + adjacency.getEdgeCount() <= LEAF_WORK) {
+      return check.holds(0, adjacency.size(), cancelled);
+    }
+    POOL.invoke(new RangeTask(adjacency, check, cancelled, 0, adjacency.size(), parallelism));
+    return !cancelled.get();
+  }
+
+  /**
+   * Gets the pool shared with the other parallel work on graphs, such as {@link
+   * ParallelBreadthFirstSearch}.
+   *
+   * @return The pool.
+   */
+  static ForkJoinPool getPool() {
+    return POOL;
+  }
+
+  /**
+   * Checks a range of verticies, splitting it in two while it is to be checked in more than one
+   * piece and holds enough work to be worth splitting.
+   */
+  private static class RangeTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final AdjacencyIndex<?> adjacency;
+    private final VertexRangeCheck check;
+    private final AtomicBoolean cancelled;
+    private final int from;
+    private final int to;
+    private final int pieces;
+
+    /**
+     * Constructor for RangeTask.
+     *
+     * @param adjacency The adjacency index of the graph.
+     * @param check The property to check.
+     * @param cancelled Set once any range has found a violation.
+     * @param from The first ordinal of the range.
+     * @param to The ordinal after the last one in the range.
+     * @param pieces The most ranges to split this range into.
+     */
+    RangeTask(
+        AdjacencyIndex<?> adjacency,
+        VertexRangeCheck check,
+        AtomicBoolean cancelled,
+        int from,
+        int to,
+        int pieces) {
+      this.adjacency = adjacency;
+      this.check = check;
+      this.cancelled = cancelled;
+      this.from = from;
+      this.to = to;
+      this.pieces = pieces;
+    }
+
+    @Override
+    protected void compute() {
+      if (cancelled.get()) {
+        return;
+      }
+
+      int edges = adjacency.getStart(to) - adjacency.getStart(from);
+      if (pieces <= 1 || to - from <= 1 || edges + (to - from) <= LEAF_WORK) {
+        if (!check.holds(from, to, cancelled)) {
+          cancelled.set(true);
+        }
+        return;
+      }
+
+      // each half gets its share of the pieces, so the leaves never outnumber the parallelism
+      int firstPieces = pieces / 2;
+      int middle = split(firstPieces);
+      invokeAll(
+          new RangeTask(adjacency, check, cancelled, from, middle, firstPieces),
+          new RangeTask(adjacency, check, cancelled, middle, to, pieces - firstPieces));
+    }
+
+    /**
+     * Finds the ordinal that splits the range so the first part holds the share of the edges and
+     * verticies given by its pieces, by binary searching the row offsets.
+     *
+     * @param firstPieces The number of pieces the first part will be checked in.
+     * @return The first ordinal of the second part, strictly inside the range.
+     */
+    private int split(int firstPieces) {
+      // the work before ordinal v is its row offset plus v, which only ever grows with v
+      long start = (long) adjacency.getStart(from) + from;
+      long end = (long) adjacency.getStart(to) + to;
+      long target = start + (end - start) * firstPieces / pieces;
+      int low = from + 1;
+      int high = to - 1;
+
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if ((long) adjacency.getStart(middle) + middle < target) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+  }
+}
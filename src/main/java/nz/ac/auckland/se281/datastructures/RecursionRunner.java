@@ -0,0 +1,67 @@
+package nz.ac.auckland.se281.datastructures;
+
+/**
+ * Runs deeply recursive work on a dedicated thread whose stack is sized for the deepest recursion
+ * the work can reach, so the recursion keeps its shape but cannot overflow the stack of the
+ * calling thread.
+ */
+public class RecursionRunner {
+  /** A generous upper bound on the stack used by one frame of the graph search helpers. */
+  private static final long FRAME_BYTES = 256;
+
+  /** Stack kept free for everything below the recursion. */
+  private static final long BASE_STACK_BYTES = 1L << 20;
+
+  /** Depths up to this fit comfortably in any default thread stack, so run on the caller. */
+  private static final long DIRECT_DEPTH_LIMIT = 1000;
+
+  private RecursionRunner() {}
+
+  /**
+   * Runs the given work, on a thread with a large enough stack if it can recurse deeply.
+   *
+   * @param maxDepth The deepest the work can recurse.
+   * @param work The work to run.
+   * @throws RuntimeException If the work throws, or the caller is interrupted while waiting.
+   */
+  public static void run(long maxDepth, Runnable work) throws RuntimeException {
+    if (maxDepth <= DIRECT_DEPTH_LIMIT) {
+      work.run();
+      return;
+    }
+
+    Throwable[] failure = new Throwable[1];
+    Thread thread =
+        new Thread(
+            null,
+            new Runnable() {
+              @Override
+              public void run() {
+                try {
+                  work.run();
+                } catch (Throwable e) {
+                  failure[0] = e;
+                }
+              }
+            },
+            "graph-recursion",
+            BASE_STACK_BYTES + maxDepth * FRAME_BYTES);
+
+    thread.start();
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while waiting for recursion to finish", e);
+    }
+
+    // passes any failure on to the caller as if the work had run on its thread
+    if (failure[0] instanceof RuntimeException) {
+      throw (RuntimeException) failure[0];
+    } else if (failure[0] instanceof Error) {
+      throw (Error) failure[0];
+    } else if (failure[0] != null) {
+      throw new RuntimeException(failure[0]);
+    }
+  }
+}
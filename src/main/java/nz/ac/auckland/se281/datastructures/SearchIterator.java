@@ -0,0 +1,196 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Walks a search of a graph one vertex at a time, only doing the work needed to find each vertex
+ * as it is asked for, so taking the first few verticies of a search costs little however large the
+ * graph is. The verticies come in the same order as the search that returns them all as a list.
+ *
+ * @param <T> The type of each vertex.
+ */
+abstract class SearchIterator<T extends Comparable<T>> implements Iterator<T> {
+  private static final int UNKNOWN = -2;
+  private static final int DONE = -1;
+
+  protected final AdjacencyIndex<T> adjacency;
+  protected final OrdinalBitmap visited;
+  private final Graph<T> graph;
+  private final int expectedModificationCount;
+  private final int[] roots;
+  private final WorkCounter work;
+  private int nextRoot;
+  private int pending = UNKNOWN;
+
+  /**
+   * Constructor for SearchIterator, starting before the first root.
+   *
+   * @param graph The graph being searched, to tell if it is changed during the search.
+   * @param adjacency The adjacency index of the graph.
+   * @param roots The ordinals of the roots to search from, in order.
+   * @param work The counter to add the work of the search to.
+   */
+  SearchIterator(Graph<T> graph, AdjacencyIndex<T> adjacency, int[] roots, WorkCounter work) {
+    this.graph = graph;
+    this.expectedModificationCount = graph.getModificationCount();
+    this.adjacency = adjacency;
+    this.roots = roots;
+    this.work = work;
+    this.visited = new OrdinalBitmap(adjacency.size());
+  }
+
+  /**
+   * Finds the next vertex of the search from the verticies already reached.
+   *
+   * @return the ordinal of the vertex, or -1 if every vertex reached has been visited.
+   */
+  protected abstract int advance();
+
+  /**
+   * Starts the search again from a root that has not been visited yet.
+   *
+   * @param root the ordinal of the root, which has just been marked as visited.
+   * @return the ordinal of the first vertex of the search from the root.
+   */
+  protected abstract int start(int root);
+
+  @Override
+  public boolean hasNext() {
+    if (graph.getModificationCount() != expectedModificationCount) {
+      throw new ConcurrentModificationException("The graph was changed during the search");
+    }
+    if (pending == UNKNOWN) {
+      pending = advance();
+      // moves on to the next root once everything reached from the last one has been visited
+      while (pending == DONE && nextRoot < roots.length) {
+        int root = roots[nextRoot++];
+        if (visited.add(root)) {
+          pending = start(root);
+        }
+      }
+    }
+    return pending != DONE;
+  }
+
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException("The search has visited every vertex");
+    }
+    int ordinal = pending;
+
+    pending = UNKNOWN;
+    work.add(1, adjacency.getEnd(ordinal) - adjacency.getStart(ordinal));
+    return adjacency.getVertex(ordinal);
+  }
+
+  /**
+   * A breadth first search, which queues the neighbours of each vertex as it is visited.
+   *
+   * @param <T> The type of each vertex.
+   */
+  static class BreadthFirst<T extends Comparable<T>> extends SearchIterator<T> {
+    private final IntQueue queue = new IntQueue();
+
+    /**
+     * Constructor for a lazy breadth first search.
+     *
+     * @param graph The graph being searched, to tell if it is changed during the search.
+     * @param adjacency The adjacency index of the graph.
+     * @param roots The ordinals of the roots to search from, in order.
+     * @param work The counter to add the work of the search to.
+     */
+    BreadthFirst(Graph<T> graph, AdjacencyIndex<T> adjacency, int[] roots, WorkCounter work) {
+      super(graph, adjacency, roots, work);
+    }
+
+    @Override
+    protected int advance() {
+      if (queue.isEmpty()) {
+        return DONE;
+      }
+      int dequeued = queue.dqueue();
+      // the row is already sorted, so walking it queues the neighbours smallest first
+      for (int i = adjacency.getStart(dequeued); i < adjacency.getEnd(dequeued); i++) {
+        int target = adjacency.getTarget(i);
+        if (visited.add(target)) {
+          queue.enqueue(target);
+        }
+      }
+      return dequeued;
+    }
+
+    @Override
+    protected int start(int root) {
+      queue.enqueue(root);
+      return advance();
+    }
+  }
+
+  /**
+   * A depth first search, which goes to the smallest neighbour of the last vertex visited that
+   * has not been visited yet, backing up when there is none.
+   *
+   * @param <T> The type of each vertex.
+   */
+  static class DepthFirst<T extends Comparable<T>> extends SearchIterator<T> {
+    private final IntStack stack = new IntStack();
+    // how far through its row each vertex on the stack has been searched, so only the verticies
+    // on the stack need a cursor rather than every vertex in the graph
+    private final IntStack cursors = new IntStack();
+
+    /**
+     * Constructor for a lazy depth first search.
+     *
+     * @param graph The graph being searched, to tell if it is changed during the search.
+     * @param adjacency The adjacency index of the graph.
+     * @param roots The ordinals of the roots to search from, in order.
+     * @param work The counter to add the work of the search to.
+     */
+    DepthFirst(Graph<T> graph, AdjacencyIndex<T> adjacency, int[] roots, WorkCounter work) {
+      super(graph, adjacency, roots, work);
+    }
+
+    @Override
+    protected int advance() {
+      while (!stack.isEmpty()) {
+        int vertex = stack.peek();
+        int end = adjacency.getEnd(vertex);
+        int cursor = cursors.pop();
+
+        while (cursor < end && visited.contains(adjacency.getTarget(cursor))) {
+          cursor++;
+        }
+        if (cursor == end) {
+          // if there are no neighbours left pop the stack
+          stack.pop();
+        } else {
+          int min = adjacency.getTarget(cursor);
+          cursors.push(cursor);
+          visited.add(min);
+          push(min);
+          return min;
+        }
+      }
+      return DONE;
+    }
+
+    @Override
+    protected int start(int root) {
+      push(root);
+      return root;
+    }
+
+    /**
+     * Pushes a vertex onto the stack, with its cursor at the start of its row.
+     *
+     * @param vertex the ordinal of the vertex.
+     */
+    private void push(int vertex) {
+      stack.push(vertex);
+      cursors.push(adjacency.getStart(vertex));
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package nz.ac.auckland.se281.datastructures;
+
+/**
+ * The working state of a search on a graph: the verticies visited, the queue or stack of verticies
+ * still to visit, how far through its row each vertex has been searched, and the number of edges
+ * scanned so far. A graph keeps one to
+ * hand to each search in turn, so repeated searches reuse the same arrays rather than allocating
+ * new ones each time.
+ */
+class SearchScratch {
+  private final OrdinalBitmap visited = new OrdinalBitmap(0);
+  private final IntQueue queue = new IntQueue();
+  private final IntStack stack = new IntStack();
+  private int[] cursors = new int[0];
+  private long edgesScanned;
+
+  /**
+   * Readies the scratch for a search of the given adjacency index, emptying everything a search
+   * that was cut short might have left behind.
+   *
+   * @param adjacency The adjacency index to search.
+   */
+  void reset(AdjacencyIndex<?> adjacency) {
+    visited.reset(adjacency.size());
+    queue.clear();
+    stack.clear();
+    edgesScanned = 0;
+  }
+
+  /**
+   * Counts the edges in the row of a vertex the search is done with.
+   *
+   * @param edges The number of edges in the row.
+   */
+  void countEdges(int edges) {
+    edgesScanned += edges;
+  }
+
+  /**
+   * Gets the number of edges scanned since the scratch was reset.
+   *
+   * @return The number of edges.
+   */
+  long getEdgesScanned() {
+    return edgesScanned;
+  }
+
+  /**
+   * Gets the verticies visited so far.
+   *
+   * @return The visited set, by ordinal.
+   */
+  OrdinalBitmap getVisited() {
+    return visited;
+  }
+
+  /**
+   * Gets the queue of a breadth first search.
+   *
+   * @return The queue.
+   */
+  IntQueue getQueue() {
+    return queue;
+  }
+
+  /**
+   * Gets the stack of a depth first search.
+   *
+   * @return The stack.
+   */
+  IntStack getStack() {
+    return stack;
+  }
+
+  /**
+   * Gets a cursor for every vertex of an adjacency index, pointing at the start of its row of
+   * neighbours.
+   *
+   * @param adjacency The adjacency index to search.
+   * @return The cursors, indexed by ordinal.
+   */
+  int[] getCursors(AdjacencyIndex<?> adjacency) {
+    if (cursors.length < adjacency.size()) {
+      cursors = new int[adjacency.size()];
+    }
+    for (int i = 0; i < adjacency.size(); i++) {
+      cursors[i] = adjacency.getStart(i);
+    }
+    return cursors;
+  }
+
+  /**
+   * Estimates the bytes of heap used by the scratch.
+   *
+   * @return The estimated number of bytes.
+   */
+  long estimateFootprint() {
+    return visited.estimateFootprint() + 4L * cursors.length + 160;
+  }
+}
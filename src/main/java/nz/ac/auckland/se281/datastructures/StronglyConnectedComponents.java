@@ -0,0 +1,235 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The strongly connected components of a graph, the largest sets of verticies that can each reach
+ * every other vertex in the set, found with Tarjan's algorithm in one pass over the adjacency
+ * index. The search keeps its own stack of verticies and how far through its row each one has
+ * been searched, rather than recursing, so it runs in linear time however deep the graph is. The
+ * components are numbered in the order of their smallest vertex, and the members of each component
+ * are kept in ordinal order.
+ *
+ * @param <T> The type of each vertex.
+ */
+public class StronglyConnectedComponents<T extends Comparable<T>> {
+  private static final int UNVISITED = -1;
+
+  private final AdjacencyIndex<T> adjacency;
+  private final int[] componentOf;
+  private final int[] offsets;
+  private final int[] members;
+
+  /**
+   * Constructor for StronglyConnectedComponents.
+   *
+   * @param adjacency The adjacency index of the graph to split into components.
+   */
+  public StronglyConnectedComponents(AdjacencyIndex<T> adjacency) {
+    this.adjacency = adjacency;
+    int size = adjacency.size();
+    // the order each vertex was first reached in, and the earliest vertex still on the component
+    // stack that it can reach
+    int[] order = new int[size];
+    int[] low = new int[size];
+    int[] found = new int[size];
+    IntStack component = new IntStack();
+    IntStack path = new IntStack();
+    IntStack cursors = new IntStack();
+    int reached = 0;
+    int count = 0;
+
+    Arrays.fill(order, UNVISITED);
+    Arrays.fill(found, UNVISITED);
+    for (int start = 0; start < size; start++) {
+      if (order[start] != UNVISITED) {
+        continue;
+      }
+      order[start] = reached;
+      low[start] = reached++;
+      component.push(start);
+      path.push(start);
+      cursors.push(adjacency.getStart(start));
+
+      while (!path.isEmpty()) {
+        int vertex = path.peek();
+        int cursor = cursors.pop();
+
+        if (cursor < adjacency.getEnd(vertex)) {
+          int target = adjacency.getTarget(cursor);
+          cursors.push(cursor + 1);
+          if (order[target] == UNVISITED) {
+            // goes down the edge, as the recursive algorithm would call itself on the target
+            order[target] = reached;
+            low[target] = reached++;
+            component.push(target);
+            path.push(target);
+            cursors.push(adjacency.getStart(target));
+          } else if (found[target] == UNVISITED) {
+            // a vertex that has been reached but not put in a component is still on the stack
+            low[vertex] = Math.min(low[vertex], order[target]);
+          }
+          continue;
+        }
+
+        // every edge of the vertex has been followed, so return to the vertex before it
+        path.pop();
+        if (low[vertex] == order[vertex]) {
+          int member;
+          do {
+            member = component.pop();
+            found[member] = count;
+          } while (member != vertex);
+          count++;
+        }
+        if (!path.isEmpty()) {
+          int parent = path.peek();
+          low[parent] = Math.min(low[parent], low[vertex]);
+        }
+      }
+    }
+
+    // numbers the components in order of their smallest vertex and counts the members of each
+    int[] renumbered = new int[count];
+    int next = 0;
+    componentOf = new int[size];
+    Arrays.fill(renumbered, UNVISITED);
+    for (int vertex = 0; vertex < size; vertex++) {
+      if (renumbered[found[vertex]] == UNVISITED) {
+        renumbered[found[vertex]] = next++;
+      }
+      componentOf[vertex] = renumbered[found[vertex]];
+    }
+    offsets = new int[count + 1];
+    for (int vertex = 0; vertex < size; vertex++) {
+      offsets[componentOf[vertex] + 1]++;
+    }
+    for (int i = 0; i < count; i++) {
+      offsets[i + 1] += offsets[i];
+    }
+
+    // groups the verticies of each component together
+    int[] slots = new int[count];
+    System.arraycopy(offsets, 0, slots, 0, count);
+    members = new int[size];
+    for (int vertex = 0; vertex < size; vertex++) {
+      members[slots[componentOf[vertex]]++] = vertex;
+    }
+  }
+
+  /**
+   * Returns the number of components.
+   *
+   * @return The number of components.
+   */
+  public int getComponentCount() {
+    return offsets.length - 1;
+  }
+
+  /**
+   * Returns the component that the vertex with the given ordinal belongs to.
+   *
+   * @param ordinal The ordinal of the vertex.
+   * @return The index of its component.
+   */
+  public int getComponentOf(int ordinal) {
+    return componentOf[ordinal];
+  }
+
+  /**
+   * Returns the number of verticies in the given component.
+   *
+   * @param index The index of the component.
+   * @return The number of verticies.
+   */
+  public int getSize(int index) {
+    return offsets[index + 1] - offsets[index];
+  }
+
+  /**
+   * Returns the verticies in the given component, in the time it takes to list them.
+   *
+   * @param index The index of the component.
+   * @return The verticies in the component.
+   */
+  public List<T> getMembers(int index) {
+    List<T> result = new ArrayList<T>(getSize(index));
+
+    for (int i = offsets[index]; i < offsets[index + 1]; i++) {
+      result.add(adjacency.getVertex(members[i]));
+    }
+    return result;
+  }
+
+  /**
+   * Builds the condensation of the graph, which has a vertex for each component and an edge
+   * between two components wherever the graph has an edge from a vertex in one to a vertex in the
+   * other. No component can reach back to itself through another, so it has no cycles.
+   *
+   * @return The adjacency index of the condensation, with the component indexes as its verticies.
+   */
+  public AdjacencyIndex<Integer> buildCondensation() {
+    List<Integer> components = new ArrayList<Integer>(getComponentCount());
+    int[] rowOffsets = new int[getComponentCount() + 1];
+    // the last component found to have an edge to each component, so repeated edges count once
+    int[] lastSource = new int[getComponentCount()];
+
+    for (int i = 0; i < getComponentCount(); i++) {
+      components.add(i);
+    }
+
+    // counts the edges leaving each component first, so the rows take no more than they need
+    Arrays.fill(lastSource, -1);
+    for (int component = 0; component < getComponentCount(); component++) {
+      rowOffsets[component + 1] =
+          rowOffsets[component] + collectTargets(component, lastSource, null, 0);
+    }
+    int[] targets = new int[rowOffsets[getComponentCount()]];
+    Arrays.fill(lastSource, -1);
+    for (int component = 0; component < getComponentCount(); component++) {
+      collectTargets(component, lastSource, targets, rowOffsets[component]);
+      Arrays.sort(targets, rowOffsets[component], rowOffsets[component + 1]);
+    }
+    return new AdjacencyIndex<Integer>(VertexDictionary.inOrder(components), rowOffsets, targets);
+  }
+
+  /**
+   * Finds the other components that a component has edges to, each one once. Edges inside the
+   * component are left out.
+   *
+   * @param component The index of the component.
+   * @param lastSource The last component each component was found from, which is updated.
+   * @param targets The array to write the components found into, or null to only count them.
+   * @param start The position in targets to write the first one.
+   * @return The number of components found.
+   */
+  private int collectTargets(int component, int[] lastSource, int[] targets, int start) {
+    int found = 0;
+
+    for (int j = offsets[component]; j < offsets[component + 1]; j++) {
+      int vertex = members[j];
+      for (int i = adjacency.getStart(vertex); i < adjacency.getEnd(vertex); i++) {
+        int target = componentOf[adjacency.getTarget(i)];
+        if (target != component && lastSource[target] != component) {
+          lastSource[target] = component;
+          if (targets != null) {
+            targets[start + found] = target;
+          }
+          found++;
+        }
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Estimates the bytes of heap used by the components.
+   *
+   * @return The estimated number of bytes.
+   */
+  public long estimateFootprint() {
+    return 48 + 4L * (componentOf.length + offsets.length + members.length);
+  }
+}
@@ -0,0 +1,193 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Checks if the edges of a graph form a transitive relation, by checking that the successors of
+ * every successor of a vertex are also successors of that vertex. The successors are held as
+ * bitsets so each check is done a 64 bit word at a time. Ranges of verticies can be checked on
+ * different threads, as the bitsets of a dense graph are only read once built.
+ */
+public class TransitivityChecker implements VertexRangeCheck {
+  /** Edges per possible edge above which a full bitset for every vertex is worth building. */
+  private static final double DENSE_THRESHOLD = 1.0 / 64;
+
+  /** The most words the dense bitsets may use, which is 64MB. */
+  private static final long MAX_DENSE_WORDS = 1L << 23;
+
+  private final AdjacencyIndex<?> adjacency;
+  private final WorkCounter work;
+  private final int words;
+  private final long[][] successors;
+
+  /**
+   * Constructor for TransitivityChecker, builds the bitsets of successors if the graph is dense.
+   *
+   * @param adjacency The adjacency index of the graph to check.
+   * @param work Counts the verticies and edges the check goes through.
+   */
+  public TransitivityChecker(AdjacencyIndex<?> adjacency, WorkCounter work) {
+    this.adjacency = adjacency;
+    this.work = work;
+    this.words = countWords(adjacency.size());
+    this.successors = isDense() ? buildSuccessors() : null;
+  }
+
+  /**
+   * Checks if the graph is dense enough to use a bitset for every vertex.
+   *
+   * @return boolean True or False if the dense strategy is used.
+   */
+  public boolean isDense() {
+    long size = adjacency.size();
+
+    if (size == 0 || size * words > MAX_DENSE_WORDS) {
+      return false;
+    }
+    return adjacency.getEdgeCount() >= DENSE_THRESHOLD * size * size;
+  }
+
+  /**
+   * Checks if the graph is transitive, stopping at the first missing edge.
+   *
+   * @return boolean True or False if the graph is transitive.
+   */
+  public boolean isTransitive() {
+    return holds(0, adjacency.size(), new AtomicBoolean());
+  }
+
+  @Override
+  public boolean holds(int from, int to, AtomicBoolean cancelled) {
+    return findMissingEdge(from, to, cancelled) == null;
+  }
+
+  /**
+   * Finds the first path of two edges u -> v -> w without an edge u -> w, in order of u then v.
+   *
+   * @return The ordinals of u, v and w, or null if the graph is transitive.
+   */
+  public int[] findMissingEdge() {
+    return findMissingEdge(0, adjacency.size(), new AtomicBoolean());
+  }
+
+  /**
+   * Finds the first path of two edges u -> v -> w without an edge u -> w, for u in the range.
+   *
+   * @param from The first ordinal to check.
+   * @param to The ordinal after the last one to check.
+   * @param cancelled Set once another range has found a missing edge.
+   * @return The ordinals of u, v and w, or null if there is no missing edge in the range.
+   */
+  private int[] findMissingEdge(int from, int to, AtomicBoolean cancelled) {
+    return successors != null
+        ? findMissingEdgeDense(from, to, cancelled)
+        : findMissingEdgeSparse(from, to, cancelled);
+  }
+
+  /**
+   * Builds the bitset of successors of every vertex.
+   *
+   * @return The bitsets, one row for each vertex.
+   */
+  private long[][] buildSuccessors() {
+    long[][] successors = new long[adjacency.size()][words];
+
+    for (int vertex = 0; vertex < adjacency.size(); vertex++) {
+      for (int i = adjacency.getStart(vertex); i < adjacency.getEnd(vertex); i++) {
+        int target = adjacency.getTarget(i);
+        successors[vertex][target >>> 6] |= 1L << target;
+      }
+    }
+    return successors;
+  }
+
+  /**
+   * Checks transitivity with one bitset of successors per vertex, comparing whole rows at a time.
+   *
+   * @param from The first ordinal to check.
+   * @param to The ordinal after the last one to check.
+   * @param cancelled Set once another range has found a missing edge.
+   * @return The ordinals of the first path missing an edge, or null if there is none.
+   */
+  private int[] findMissingEdgeDense(int from, int to, AtomicBoolean cancelled) {
+    int vertex = from;
+
+    // every successor of a successor must already be a successor
+    for (; vertex < to && !cancelled.get(); vertex++) {
+      long[] row = successors[vertex];
+      for (int i = adjacency.getStart(vertex); i < adjacency.getEnd(vertex); i++) {
+        int middle = adjacency.getTarget(i);
+        long[] next = successors[middle];
+        for (int word = 0; word < words; word++) {
+          long missing = next[word] & ~row[word];
+          if (missing != 0) {
+            work.add(vertex - from + 1, i + 1 - adjacency.getStart(from));
+            return new int[] {vertex, middle, (word << 6) + Long.numberOfTrailingZeros(missing)};
+          }
+        }
+      }
+    }
+    work.add(vertex - from, adjacency.getStart(vertex) - adjacency.getStart(from));
+    return null;
+  }
+
+  /**
+   * Checks transitivity with a single scratch bitset that holds the successors of one vertex at a
+   * time, so memory stays linear in the number of verticies.
+   *
+   * @param from The first ordinal to check.
+   * @param to The ordinal after the last one to check.
+   * @param cancelled Set once another range has found a missing edge.
+   * @return The ordinals of the first path missing an edge, or null if there is none.
+   */
+  private int[] findMissingEdgeSparse(int from, int to, AtomicBoolean cancelled) {
+    long[] row = new long[words];
+    int vertex = from;
+    long scanned = 0;
+
+    for (; vertex < to && !cancelled.get(); vertex++) {
+      int start = adjacency.getStart(vertex);
+      int end = adjacency.getEnd(vertex);
+      scanned += end - start;
+
+      // marks the successors of this vertex
+      for (int i = start; i < end; i++) {
+        int target = adjacency.getTarget(i);
+        row[target >>> 6] |= 1L << target;
+      }
+
+      // checks that every successor of a successor is marked
+      for (int i = start; i < end; i++) {
+        int middle = adjacency.getTarget(i);
+        if (middle == vertex) {
+          continue;
+        }
+        for (int j = adjacency.getStart(middle); j < adjacency.getEnd(middle); j++) {
+          int target = adjacency.getTarget(j);
+          if ((row[target >>> 6] & (1L << target)) == 0) {
+            work.add(vertex - from + 1, scanned + j + 1 - adjacency.getStart(middle));
+            return new int[] {vertex, middle, target};
+          }
+        }
+        scanned += adjacency.getEnd(middle) - adjacency.getStart(middle);
+      }
+
+      // clears only the words that were marked so the scratch row can be reused
+      for (int i = start; i < end; i++) {
+        row[adjacency.getTarget(i) >>> 6] = 0;
+      }
+    }
+    work.add(vertex - from, scanned);
+    return null;
+  }
+
+  /**
+   * Returns the number of 64 bit words needed to hold a bit for every vertex.
+   *
+   * @param size The number of verticies.
+   * @return The number of words.
+   */
+  private static int countWords(int size) {
+    return (size + 63) >>> 6;
+  }
+}
@@ -0,0 +1,217 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A dictionary that gives each vertex of a graph a dense int ordinal, in the numeric order of the
+ * verticies. Comparing two ordinals is the same as comparing the numbers of the two verticies, so
+ * each vertex only has to be parsed once, when the graph is loaded.
+ *
+ * @param <T> The type of each vertex, whose string form is an integer.
+ */
+public class VertexDictionary<T extends Comparable<T>> {
+  private final List<T> verticies;
+  private final Map<T, Integer> ordinals;
+  private long footprint = -1;
+
+  /**
+   * Constructor for VertexDictionary, numbers the given verticies and the ends of the given edges.
+   *
+   * @param verticies The verticies of the graph.
+   * @param edges The edges of the graph.
+   */
+  public VertexDictionary(Set<T> verticies, Set<Edge<T>> edges) {
+    this(collect(verticies, edges));
+  }
+
+  /**
+   * Constructor for VertexDictionary, numbers the given verticies.
+   *
+   * @param found The verticies of the graph, each listed once in any order.
+   */
+  public VertexDictionary(List<T> found) {
+    Integer[] order = sort(found);
+
+    this.verticies = new ArrayList<T>(order.length);
+    this.ordinals = new HashMap<T, Integer>();
+    for (int i = 0; i < order.length; i++) {
+      T vertex = found.get(order[i]);
+      this.verticies.add(vertex);
+      this.ordinals.put(vertex, i);
+    }
+  }
+
+  /**
+   * Constructor for VertexDictionary, uses the given verticies and ordinals as they are.
+   *
+   * @param verticies The verticies in numeric order.
+   * @param ordinals The ordinal of each vertex.
+   */
+  private VertexDictionary(List<T> verticies, Map<T, Integer> ordinals) {
+    this.verticies = verticies;
+    this.ordinals = ordinals;
+  }
+
+  /**
+   * Creates a dictionary from verticies that are already in numeric order, such as those saved in
+   * a snapshot, without sorting them again.
+   *
+   * @param verticies The verticies in numeric order, each listed once.
+   * @return The dictionary numbering the verticies in the given order.
+   * @throws IllegalArgumentException If a vertex is listed more than once.
+   */
+  public static <T extends Comparable<T>> VertexDictionary<T> inOrder(List<T> verticies)
+      throws IllegalArgumentException {
+    Map<T, Integer> ordinals = new HashMap<T, Integer>();
+
+    for (int i = 0; i < verticies.size(); i++) {
+      if (ordinals.put(verticies.get(i), i) != null) {
+        throw new IllegalArgumentException("Vertex " + verticies.get(i) + " is listed twice");
+      }
+    }
+    return new VertexDictionary<T>(new ArrayList<T>(verticies), ordinals);
+  }
+
+  /**
+   * Lists the given verticies and the ends of the given edges, each once.
+   *
+   * @param verticies The verticies of the graph.
+   * @param edges The edges of the graph.
+   * @return The verticies in the order they were found.
+   */
+  private static <T> List<T> collect(Set<T> verticies, Set<Edge<T>> edges) {
+    Set<T> seen = new HashSet<T>();
+    List<T> found = new ArrayList<T>(verticies.size());
+
+    for (T vertex : verticies) {
+      add(seen, found, vertex);
+    }
+    // edges may point at verticies that were not declared on their own
+    for (Edge<T> edge : edges) {
+      add(seen, found, edge.getSource());
+      add(seen, found, edge.getDestination());
+    }
+    return found;
+  }
+
+  /**
+   * Adds the vertex to the list of found verticies if it has not been found before.
+   *
+   * @param seen The verticies found so far.
+   * @param found The verticies found so far, in the order they were found.
+   * @param vertex The vertex to add.
+   */
+  private static <T> void add(Set<T> seen, List<T> found, T vertex) {
+    if (seen.add(vertex)) {
+      found.add(vertex);
+    }
+  }
+
+  /**
+   * Sorts the verticies by their numeric value, parsing each one only once. If a vertex is not a
+   * number the verticies are sorted by their natural order instead.
+   *
+   * @param found The verticies to sort.
+   * @return The positions in found of the verticies in sorted order.
+   */
+  static <T extends Comparable<T>> Integer[] sort(List<T> found) {
+    Integer[] order = new Integer[found.size()];
+    long[] keys = new long[found.size()];
+
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    try {
+      for (int i = 0; i < keys.length; i++) {
+        keys[i] = Long.parseLong(found.get(i).toString().trim());
+      }
+    } catch (NumberFormatException e) {
+      Arrays.sort(
+          order,
+          new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+              return found.get(o1).compareTo(found.get(o2));
+            }
+          });
+      return order;
+    }
+
+    Arrays.sort(
+        order,
+        new Comparator<Integer>() {
+          @Override
+          public int compare(Integer o1, Integer o2) {
+            int result = Long.compare(keys[o1], keys[o2]);
+            // falls back to the natural order for different strings of the same number
+            return result != 0 ? result : found.get(o1).compareTo(found.get(o2));
+          }
+        });
+    return order;
+  }
+
+  /**
+   * Returns the number of verticies in the dictionary.
+   *
+   * @return The number of verticies.
+   */
+  public int size() {
+    return verticies.size();
+  }
+
+  /**
+   * Returns the ordinal of the given vertex.
+   *
+   * @param vertex The vertex to look up.
+   * @return The ordinal of the vertex, or -1 if the vertex is not in the dictionary.
+   */
+  public int getOrdinal(T vertex) {
+    Integer ordinal = ordinals.get(vertex);
+    return ordinal == null ? -1 : ordinal;
+  }
+
+  /**
+   * Returns the vertex with the given ordinal.
+   *
+   * @param ordinal The ordinal of the vertex.
+   * @return The vertex with the given ordinal.
+   */
+  public T getVertex(int ordinal) {
+    return verticies.get(ordinal);
+  }
+
+  /**
+   * Returns a read only view of the verticies in the dictionary.
+   *
+   * @return The set of verticies.
+   */
+  public Set<T> asSet() {
+    return Collections.unmodifiableSet(ordinals.keySet());
+  }
+
+  /**
+   * Estimates the bytes of heap used by the dictionary, counting each vertex by the length of its
+   * string form along with its entries in the list and map.
+   *
+   * @return The estimated number of bytes.
+   */
+  public long estimateFootprint() {
+    if (footprint == -1) {
+      // an entry, a boxed ordinal and a table slot in the map, a slot in the list, and the vertex
+      long total = 64;
+      for (T vertex : verticies) {
+        total += 96 + vertex.toString().length();
+      }
+      footprint = total;
+    }
+    return footprint;
+  }
+}
@@ -0,0 +1,20 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A property of a graph that can be checked one range of verticies at a time, so the ranges can
+ * be checked on different threads by a {@link RangeCheckRunner}.
+ */
+public interface VertexRangeCheck {
+  /**
+   * Checks the property for the verticies with ordinals from the start to the end. The check should
+   * stop early, and may return True, once the cancelled flag is set by a check of another range.
+   *
+   * @param from The first ordinal to check.
+   * @param to The ordinal after the last one to check.
+   * @param cancelled Set once any range has found a vertex that breaks the property.
+   * @return boolean False if a vertex in the range breaks the property, True otherwise.
+   */
+  boolean holds(int from, int to, AtomicBoolean cancelled);
+}
@@ -0,0 +1,77 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Counts the work done by the checks and searches on a graph, as the number of verticies visited
+ * and edges scanned, along with the deepest recursion of its recursive searches. Ranges checked on
+ * different threads can add to the same counter, and each range adds its totals once rather than
+ * on every edge.
+ */
+public class WorkCounter {
+  private final LongAdder verticiesVisited = new LongAdder();
+  private final LongAdder edgesScanned = new LongAdder();
+  private final LongAccumulator deepestRecursion =
+      new LongAccumulator(
+          new LongBinaryOperator() {
+            @Override
+            public long applyAsLong(long deepest, long depth) {
+              return Math.max(deepest, depth);
+            }
+          },
+          0);
+
+  /**
+   * Adds the work done by one check or search.
+   *
+   * @param verticies The number of verticies visited.
+   * @param edges The number of edges scanned.
+   */
+  public void add(long verticies, long edges) {
+    verticiesVisited.add(verticies);
+    edgesScanned.add(edges);
+  }
+
+  /**
+   * Gets the number of verticies visited so far.
+   *
+   * @return The number of verticies.
+   */
+  public long getVerticiesVisited() {
+    return verticiesVisited.sum();
+  }
+
+  /**
+   * Gets the number of edges scanned so far.
+   *
+   * @return The number of edges.
+   */
+  public long getEdgesScanned() {
+    return edgesScanned.sum();
+  }
+
+  /**
+   * Records the depth reached by a recursive search, keeping the deepest so far.
+   *
+   * @param depth The deepest call of the search.
+   */
+  public void recordRecursionDepth(int depth) {
+    deepestRecursion.accumulate(depth);
+  }
+
+  /**
+   * Gets the deepest recursion reached by any recursive search so far.
+   *
+   * @return The maximum recursion depth, or 0 if no recursive search has run.
+   */
+  public long getDeepestRecursion() {
+    return deepestRecursion.get();
+  }
+
+  /** Resets the deepest recursion, so the next read is of the searches run after this. */
+  public void resetDeepestRecursion() {
+    deepestRecursion.reset();
+  }
+}
@@ -2,6 +2,33 @@ package nz.ac.auckland.se281;
 
 import static nz.ac.auckland.se281.Command.*;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import nz.ac.auckland.se281.datastructures.Edge;
+import nz.ac.auckland.se281.datastructures.Graph;
+import nz.ac.auckland.se281.datastructures.GraphSnapshot;
+import nz.ac.auckland.se281.datastructures.OffHeapAdjacencyIndex;
+import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
@@ -635,5 +662,705 @@ public class MainTest {
       runCommands(OPEN_FILE, "useless-root.txt", GRAPH_SEARCH_RDFS);
       assertContains("[0, 1, 3, 4, 5, 2, 6]");
     }
+
+    // every equivalence class listed at once
+    @Test
+    public void TY_01_C_list_equivalence_classes() throws Exception {
+      runCommands(OPEN_FILE, "c.txt", LIST_EQUIVALENCE_CLASSES);
+      assertContains("Successfully opened graph from file c.txt");
+      assertContains("[[0], [1, 2, 3]]");
+    }
+
+    @Test
+    public void TY_02_A_list_equivalence_classes() throws Exception {
+      runCommands(OPEN_FILE, "a.txt", LIST_EQUIVALENCE_CLASSES);
+      assertContains("Successfully opened graph from file a.txt");
+      assertContains("[]");
+    }
+
+    // graphs saved as binary snapshots open again with the same answers
+    @Test
+    public void TY_01_C_snapshot() throws Exception {
+      runCommands(
+          OPEN_FILE,
+          "c.txt",
+          SAVE_SNAPSHOT,
+          "c.snapshot",
+          OPEN_SNAPSHOT,
+          "c.snapshot",
+          LIST_ROOT_VERTICIES,
+          COMPUTE_EQUIVALENCE,
+          "2");
+      assertContains("Successfully saved snapshot to file c.snapshot");
+      assertContains("Successfully opened graph from file c.snapshot");
+      assertContains("[0, 1]");
+      assertContains("[1, 2, 3]");
+    }
+
+    @Test
+    public void TY_02_A_snapshot_invalid() throws Exception {
+      runCommands(OPEN_SNAPSHOT, "a.txt", OPEN_SNAPSHOT, "missing.snapshot");
+      assertContains("Error: file 'a.txt' is not a valid graph snapshot");
+      assertContains("Error: file 'missing.snapshot' not found in `testcases` folder");
+    }
+
+    // properties checked on several threads give the same answers
+    @Test
+    public void TY_01_C_parallel_properties() throws Exception {
+      runCommands(
+          SET_PARALLELISM,
+          "4",
+          OPEN_FILE,
+          "c.txt",
+          CHECK_REFLEXIVITY,
+          CHECK_SYMMETRY,
+          CHECK_TRANSITIVITY,
+          CHECK_ANTISYMMETRY);
+      assertContains("Checking properties with 4 threads");
+      assertContains("The graph is reflexive");
+      assertContains("The graph is symmetric");
+      assertContains("The graph is transitive");
+      assertContains("The graph is NOT antisymmetric");
+    }
+
+    @Test
+    public void TY_02_parallelism_invalid() throws Exception {
+      runCommands(SET_PARALLELISM, "0", SET_PARALLELISM, "many");
+      assertContains("Error: '0' is not a valid number of threads");
+      assertContains("Error: 'many' is not a valid number of threads");
+    }
+
+    // the parallel breadth first search visits in the same order as the sequential one
+    @Test
+    public void TY_09_test_useless_root_PBFS() throws Exception {
+      runCommands(SET_PARALLELISM, "4", OPEN_FILE, "useless-root.txt", GRAPH_SEARCH_PBFS);
+      assertContains("[0, 1, 2, 3, 4, 5, 6]");
+    }
+
+    @Test
+    public void TY_08_test_two_subgraphs_PBFS() throws Exception {
+      runCommands(SET_PARALLELISM, "4", OPEN_FILE, "2-subgraphs.txt", GRAPH_SEARCH_PBFS);
+      assertContains("[1, 2, 3, 4, 5, 6, 7]");
+    }
+
+    // results can be sent back to the console after being sent to a file
+    @Test
+    public void TY_01_C_output_console() throws Exception {
+      runCommands(OUTPUT_FILE, "-", OPEN_FILE, "c.txt", LIST_EQUIVALENCE_CLASSES);
+      assertContains("Writing results to the console");
+      assertContains("[[0], [1, 2, 3]]");
+    }
+
+    // a graph opened again comes from the cache with the same answers
+    @Test
+    public void TY_01_A_reopen_cached() throws Exception {
+      runCommands(
+          OPEN_FILE,
+          "a.txt",
+          CHECK_SYMMETRY,
+          OPEN_FILE,
+          "c.txt",
+          OPEN_FILE,
+          "a.txt",
+          LIST_ROOT_VERTICIES,
+          CHECK_SYMMETRY,
+          INFO);
+      assertContains("[0]");
+      assertContains("The graph is NOT symmetric");
+      assertContains("File name: a.txt");
+    }
+
+    // the roots and properties follow each change to the graph
+    @Test
+    public void TY_01_A_change_edges() throws Exception {
+      runCommands(
+          OPEN_FILE,
+          "a.txt",
+          REMOVE_EDGE,
+          "0",
+          "1",
+          LIST_ROOT_VERTICIES,
+          ADD_EDGE,
+          "2",
+          "0",
+          LIST_ROOT_VERTICIES,
+          CHECK_ANTISYMMETRY,
+          GRAPH_SEARCH_IBFS);
+      assertContains("Removed edge 0 -> 1");
+      assertContains("[0, 1]");
+      assertContains("Added edge 2 -> 0");
+      assertContains("[1]");
+      assertContains("The graph is NOT antisymmetric");
+      assertContains("[1, 3, 4, 5]");
+    }
+
+    // a changed graph is loaded again from its file when it is opened again
+    @Test
+    public void TY_01_A_change_reopen() throws Exception {
+      runCommands(
+          OPEN_FILE,
+          "a.txt",
+          REMOVE_EDGE,
+          "5",
+          "0",
+          ADD_VERTEX,
+          "0",
+          ADD_VERTEX,
+          "9",
+          ADD_EDGE,
+          "3",
+          "0",
+          OPEN_FILE,
+          "a.txt",
+          LIST_ROOT_VERTICIES);
+      assertContains("Error: edge 5 -> 0 is not in the graph");
+      assertContains("Vertex 0 is already in the graph");
+      assertContains("Added vertex 9");
+      assertContains("[0]");
+    }
+
+    // the first violation of each property is printed once counterexamples are turned on
+    @Test
+    public void TY_01_A_counterexamples() throws Exception {
+      runCommands(
+          SHOW_COUNTEREXAMPLES,
+          "on",
+          OPEN_FILE,
+          "a.txt",
+          CHECK_REFLEXIVITY,
+          CHECK_SYMMETRY,
+          CHECK_TRANSITIVITY,
+          CHECK_EQUIVALENCE);
+      assertContains("Counterexamples are shown");
+      assertContains("Counterexample: vertex 0 has no edge to itself");
+      assertContains("Counterexample: edge 0 -> 1 has no edge back");
+      assertContains("Counterexample: edges 0 -> 1 -> 3 have no edge 0 -> 3");
+      assertContains("The graph is NOT an equivalence relation");
+    }
+
+    @Test
+    public void TY_01_C_counterexamples() throws Exception {
+      runCommands(
+          SHOW_COUNTEREXAMPLES,
+          "maybe",
+          OPEN_FILE,
+          "c.txt",
+          SHOW_COUNTEREXAMPLES,
+          "on",
+          CHECK_ANTISYMMETRY,
+          CHECK_EQUIVALENCE);
+      assertContains("Error: 'maybe' is not on or off");
+      assertContains("Counterexample: edge 1 -> 2 has an edge back");
+      assertContains("The graph is an equivalence relation");
+    }
+
+    // each command is counted once it has run, with a histogram line for each run
+    @Test
+    public void TY_01_A_stats() throws Exception {
+      runCommands(STATS, OPEN_FILE, "a.txt", GRAPH_SEARCH_IBFS, GRAPH_SEARCH_IBFS, STATS);
+      assertContains("No commands have been run yet");
+      assertContains("OPEN_FILE: 1 run,");
+      assertContains("GRAPH_SEARCH_IBFS: 2 runs,");
+      assertContains("STATS: 1 run,");
+    }
+
+    // searches reuse their working state, which has to grow with the graph
+    @Test
+    public void TY_01_A_search_after_growing() throws Exception {
+      runCommands(
+          OPEN_FILE,
+          "a.txt",
+          GRAPH_SEARCH_RDFS,
+          ADD_EDGE,
+          "5",
+          "6",
+          ADD_EDGE,
+          "6",
+          "7",
+          GRAPH_SEARCH_RDFS,
+          GRAPH_SEARCH_IBFS);
+      assertContains("[0, 1, 3, 4, 5, 2]");
+      assertContains("[0, 1, 3, 4, 5, 6, 7, 2]");
+      assertContains("[0, 1, 2, 3, 4, 5, 6, 7]");
+    }
+
+    // a limited search prints the start of the full search order
+    @Test
+    public void TY_01_A_search_limit() throws Exception {
+      runCommands(
+          OPEN_FILE,
+          "a.txt",
+          GRAPH_SEARCH_IBFS_LIMIT,
+          "3",
+          GRAPH_SEARCH_IDFS_LIMIT,
+          "4",
+          GRAPH_SEARCH_IDFS_LIMIT,
+          "100");
+      assertContains("[0, 1, 2]");
+      assertContains("[0, 1, 3, 4]");
+      assertContains("[0, 1, 3, 4, 5, 2]");
+      assertDoesNotContain("[0, 1, 2, 3]");
+    }
+
+    @Test
+    public void TY_01_A_search_limit_invalid() throws Exception {
+      runCommands(OPEN_FILE, "a.txt", GRAPH_SEARCH_IBFS_LIMIT, "-1", GRAPH_SEARCH_IDFS_LIMIT, "x");
+      assertContains("Error: '-1' is not a valid number of vertices");
+      assertContains("Error: 'x' is not a valid number of vertices");
+    }
+
+    // 1, 2 and 3 can all reach one another, but 0 only reaches itself
+    @Test
+    public void TY_01_C_strongly_connected_components() throws Exception {
+      runCommands(
+          OPEN_FILE,
+          "c.txt",
+          LIST_COMPONENTS,
+          LIST_COMPONENT_SIZES,
+          COMPUTE_COMPONENT,
+          "3",
+          COMPUTE_COMPONENT,
+          "7");
+      assertContains("[[0], [1, 2, 3]]");
+      assertContains("[1, 3]");
+      assertContains("Vertex 3 is in strongly connected component 1 of size 3");
+      assertContains("Error: vertex 7 is not in the graph");
+    }
+
+    @Test
+    public void TY_01_A_condensation() throws Exception {
+      runCommands(
+          OPEN_FILE, "a.txt", ADD_EDGE, "3", "0", LIST_COMPONENTS, LIST_CONDENSATION);
+      assertContains("[[0, 1, 3], [2], [4], [5]]");
+      assertContains("0 -> 1");
+      assertContains("0 -> 2");
+      assertContains("0 -> 3");
+      assertDoesNotContain("1 -> 3");
+    }
+
+    // latency is only recorded for requests to a query server
+    @Test
+    public void TY_02_latency_not_server() throws Exception {
+      runCommands(LATENCY);
+      assertContains("Error: LATENCY is only available in server mode");
+    }
+
+    // the part of the output after the last run of commands at the prompt
+    private String getOutputSinceLastRun() {
+      String output = getCaptureOut();
+      return output.substring(output.lastIndexOf("---<END RUN>---"));
+    }
+
+    @Test
+    public void TY_03_script_file() throws Exception {
+      runCommands(OPEN_FILE, "a.txt", LIST_ROOT_VERTICIES);
+      Path script = Files.createTempFile("graph-calculator", ".script");
+      try {
+        Files.writeString(
+            script,
+            "OPEN_FILE a.txt\n\nLIST_ROOT_VERTICIES\nEXIT\nCHECK_REFLEXIVITY\n");
+        Assert.assertEquals(0, Main.launch(new String[] {"--script", script.toString()}));
+      } finally {
+        Files.delete(script);
+      }
+      String output = getOutputSinceLastRun();
+      Assert.assertTrue(output.contains("Successfully opened graph from file a.txt"));
+      Assert.assertTrue(output.contains("[0]"));
+      // no prompt is printed, and nothing after EXIT is run
+      Assert.assertFalse(output.contains("graph-calculator> "));
+      Assert.assertFalse(output.contains("The graph is"));
+    }
+
+    @Test
+    public void TY_03_script_stdin() throws Exception {
+      runCommands(OPEN_FILE, "a.txt");
+      InputStream console = System.in;
+      System.setIn(
+          new ByteArrayInputStream("OPEN_FILE a.txt\nCHECK_REFLEXIVITY\n".getBytes()));
+      try {
+        Assert.assertEquals(0, Main.launch(new String[] {"--script"}));
+      } finally {
+        System.setIn(console);
+      }
+      String output = getOutputSinceLastRun();
+      Assert.assertTrue(output.contains("The graph is NOT reflexive"));
+      Assert.assertFalse(output.contains("graph-calculator> "));
+    }
+
+    @Test
+    public void TY_03_script_exit_code() throws Exception {
+      runCommands(OPEN_FILE, "missing.txt");
+      InputStream console = System.in;
+      System.setIn(
+          new ByteArrayInputStream("OPEN_FILE missing.txt\nLIST_ROOT_VERTICIES\n".getBytes()));
+      try {
+        // a command that fails makes the script fail, but the rest of it is still run
+        Assert.assertEquals(1, Main.launch(new String[] {"--script"}));
+      } finally {
+        System.setIn(console);
+      }
+      Assert.assertTrue(
+          getOutputSinceLastRun().contains("Error: file 'missing.txt' not found"));
+      Assert.assertEquals(2, Main.launch(new String[] {"--script", "a", "b"}));
+      Assert.assertEquals(2, Main.launch(new String[] {"--script", "missing.script"}));
+    }
+
+    @Test
+    public void TY_04_A_output_file() throws Exception {
+      Path results = Files.createTempFile("graph-calculator", ".txt");
+      try {
+        runCommands(
+            OUTPUT_FILE,
+            results.toString(),
+            OPEN_FILE,
+            "a.txt",
+            LIST_ROOT_VERTICIES,
+            GRAPH_SEARCH_IBFS,
+            OUTPUT_FILE,
+            "-",
+            GRAPH_SEARCH_IDFS);
+        // every list written before switching back to the console is already in the file
+        Assert.assertEquals(
+            List.of("[0]", "[0, 1, 2, 3, 4, 5]"), Files.readAllLines(results));
+      } finally {
+        Files.delete(results);
+      }
+      assertContains("[0, 1, 3, 4, 5, 2]");
+      assertDoesNotContain("[0, 1, 2, 3, 4, 5]");
+    }
+
+    // the cache must not hand back the graph read from a.txt as a DOT file
+    @Test
+    public void TY_05_A_cached_file_as_snapshot() throws Exception {
+      runCommands(OPEN_FILE, "a.txt", OPEN_SNAPSHOT, "a.txt", OPEN_FILE, "a.txt");
+      assertContains("Error: file 'a.txt' is not a valid graph snapshot");
+      assertContains("Successfully opened graph from file a.txt");
+    }
+
+    @Test
+    public void TY_06_A_export_stats() throws Exception {
+      Path export = Files.createTempFile("graph-calculator", ".jsonl");
+      List<String> lines;
+      try {
+        runCommands(
+            OPEN_FILE,
+            "a.txt",
+            CHECK_SYMMETRY,
+            CHECK_SYMMETRY,
+            GRAPH_SEARCH_IBFS,
+            EXPORT_STATS,
+            export.toString());
+        lines = Files.readAllLines(export);
+      } finally {
+        Files.delete(export);
+      }
+      assertContains("Exported statistics to " + export);
+      Pattern json =
+          Pattern.compile(
+              "\\{\"command\":\"([A-Z_]+)\",\"count\":(\\d+),\"wallNanos\":\\d+"
+                  + ",\"cpuNanos\":\\d+,\"allocatedBytes\":-?\\d+"
+                  + ",\"verticiesVisited\":(\\d+),\"edgesScanned\":(\\d+),\"deepestRecursion\":0"
+                  + ",\"wallMicrosHistogram\":\\[\\d+(,\\d+)*\\]\\}");
+      Map<String, Integer> counts = new HashMap<>();
+      for (String line : lines) {
+        Matcher matcher = json.matcher(line);
+        Assert.assertTrue(line, matcher.matches());
+        counts.put(matcher.group(1), Integer.parseInt(matcher.group(2)));
+        if (matcher.group(1).equals("GRAPH_SEARCH_IBFS")) {
+          // the search visits all 6 verticies, on top of any work finding the roots
+          Assert.assertTrue(Integer.parseInt(matcher.group(3)) >= 6);
+        }
+      }
+      // one line per command run before the export
+      Assert.assertEquals(
+          Map.of("OPEN_FILE", 1, "CHECK_SYMMETRY", 2, "GRAPH_SEARCH_IBFS", 1), counts);
+    }
+
+    // sends a command to a query server and reads its answer, up to the line holding just a dot
+    private static List<String> query(BufferedReader in, Writer out, String command)
+        throws IOException {
+      out.write(command + "\n");
+      out.flush();
+      List<String> answer = new ArrayList<>();
+      for (String line = in.readLine(); !line.equals("."); line = in.readLine()) {
+        answer.add(line);
+      }
+      return answer;
+    }
+
+    @Test
+    public void TY_07_A_server() throws Exception {
+      runCommands(OPEN_FILE, "a.txt", LIST_ROOT_VERTICIES);
+      PrintStream console = System.out;
+      GraphServer server = GraphServer.open("0");
+      Thread serving =
+          new Thread() {
+            @Override
+            public void run() {
+              try {
+                server.serve();
+              } catch (IOException e) {
+                throw new RuntimeException(e);
+              }
+            }
+          };
+      serving.start();
+      try {
+        SocketAddress address = server.getAddress();
+        try (Socket first = new Socket();
+            Socket second = new Socket()) {
+          first.connect(address);
+          second.connect(address);
+          BufferedReader firstIn =
+              new BufferedReader(
+                  new InputStreamReader(first.getInputStream(), StandardCharsets.UTF_8));
+          Writer firstOut = new OutputStreamWriter(first.getOutputStream(), StandardCharsets.UTF_8);
+          BufferedReader secondIn =
+              new BufferedReader(
+                  new InputStreamReader(second.getInputStream(), StandardCharsets.UTF_8));
+          Writer secondOut =
+              new OutputStreamWriter(second.getOutputStream(), StandardCharsets.UTF_8);
+
+          // both sessions open the same cached graph, and each one's answers only go to it
+          Assert.assertEquals(
+              List.of("Successfully opened graph from file a.txt"),
+              query(firstIn, firstOut, "OPEN_FILE a.txt"));
+          Assert.assertEquals(
+              List.of("Successfully opened graph from file a.txt"),
+              query(secondIn, secondOut, "OPEN_FILE a.txt"));
+          Assert.assertEquals(List.of("[0]"), query(firstIn, firstOut, "LIST_ROOT_VERTICIES"));
+          Assert.assertEquals(
+              List.of("[0, 1, 3, 4, 5, 2]"), query(secondIn, secondOut, "GRAPH_SEARCH_IDFS"));
+          Assert.assertEquals(
+              List.of("Error: ADD_EDGE cannot change a graph shared by the query server"),
+              query(secondIn, secondOut, "ADD_EDGE 5 0"));
+          Assert.assertEquals(List.of("[0]"), query(firstIn, firstOut, "LIST_ROOT_VERTICIES"));
+          // the sessions print to their own streams, leaving the console of the process alone
+          Assert.assertSame(console, System.out);
+        }
+      } finally {
+        server.close();
+        serving.join();
+      }
+
+      // lines of an answer starting with a dot get another, so only the end is a lone dot
+      ByteArrayOutputStream printed = new ByteArrayOutputStream();
+      printed.writeBytes(".hidden\nshown\n.\n".getBytes(StandardCharsets.UTF_8));
+      ByteArrayOutputStream sent = new ByteArrayOutputStream();
+      GraphServer.writeAnswer(printed, sent);
+      Assert.assertEquals("..hidden\nshown\n..\n.\n", sent.toString(StandardCharsets.UTF_8));
+    }
+
+    // the answer to every query of a graph, to compare graphs that keep their edges differently
+    private static List<Object> describe(Graph<String> graph) {
+      List<Object> answers = new ArrayList<>();
+      answers.add(graph.getVerticies());
+      answers.add(graph.getRoots());
+      answers.add(graph.isReflexive());
+      answers.add(graph.isSymmetric());
+      answers.add(graph.isTransitive());
+      answers.add(graph.isAntiSymmetric());
+      answers.add(graph.isEquivalence());
+      answers.add(graph.findSymmetryCounterexample());
+      answers.add(graph.findTransitivityCounterexample());
+      answers.add(graph.getEquivalenceClasses());
+      answers.add(graph.getStronglyConnectedComponents());
+      answers.add(graph.getCondensation().getEdges());
+      answers.add(graph.iterativeBreadthFirstSearch());
+      answers.add(graph.iterativeDepthFirstSearch());
+      answers.add(graph.recursiveBreadthFirstSearch());
+      answers.add(graph.recursiveDepthFirstSearch());
+      answers.add(graph.parallelBreadthFirstSearch());
+      // an index outside the heap answers these by searching the rows rather than hashing
+      for (String source : graph.getVerticies()) {
+        for (String destination : graph.getVerticies()) {
+          answers.add(graph.hasEdge(source, destination));
+        }
+      }
+      return answers;
+    }
+
+    @Test
+    public void TY_08_off_heap_index() throws Exception {
+      System.setProperty(OffHeapAdjacencyIndex.THRESHOLD_PROPERTY, "0");
+      try {
+        runCommands(
+            OPEN_FILE,
+            "a.txt",
+            LIST_ROOT_VERTICIES,
+            GRAPH_SEARCH_IDFS,
+            CHECK_TRANSITIVITY,
+            ADD_EDGE,
+            "5",
+            "0",
+            LIST_COMPONENTS);
+        assertContains("[0]");
+        assertContains("[0, 1, 3, 4, 5, 2]");
+        assertContains("The graph is NOT transitive");
+        assertContains("[[0, 1, 5], [2], [3], [4]]");
+
+        for (String name : List.of("a.txt", "b.txt", "c.txt", "d.txt", "e.txt", "g.txt")) {
+          Path file = Path.of("testcases", name);
+          System.clearProperty(OffHeapAdjacencyIndex.THRESHOLD_PROPERTY);
+          Graph<String> heap = DotGraphLoader.load(file);
+          System.setProperty(OffHeapAdjacencyIndex.THRESHOLD_PROPERTY, "0");
+          Graph<String> direct = DotGraphLoader.load(file);
+          Assert.assertFalse(heap.isOffHeap());
+          Assert.assertTrue(direct.isOffHeap());
+          direct.setParallelism(4);
+          Assert.assertEquals(name, describe(heap), describe(direct));
+
+          Path snapshot = Files.createTempFile("graph-calculator", ".snapshot");
+          try {
+            GraphSnapshot.save(heap, snapshot);
+            Graph<String> mapped = GraphSnapshot.open(snapshot);
+            Assert.assertTrue(mapped.isOffHeap());
+            Assert.assertEquals(name, describe(heap), describe(mapped));
+          } finally {
+            Files.delete(snapshot);
+          }
+
+          // the index rebuilt after a change is copied out of the heap again
+          heap.addEdge("0", "0");
+          direct.addEdge("0", "0");
+          Assert.assertTrue(direct.isOffHeap());
+          Assert.assertEquals(name, describe(heap), describe(direct));
+        }
+      } finally {
+        System.clearProperty(OffHeapAdjacencyIndex.THRESHOLD_PROPERTY);
+      }
+    }
+
+    // changes to a graph outside the heap are kept beside its index, rather than hashing its edges
+    @Test
+    public void TY_08_off_heap_changes() throws Exception {
+      runCommands(OPEN_FILE, "a.txt", LIST_ROOT_VERTICIES);
+      assertContains("[0]");
+      StringBuilder dot = new StringBuilder("digraph dense {\n");
+      Set<String> verticies = new HashSet<>();
+      Set<Edge<String>> edges = new HashSet<>();
+      for (int i = 0; i < 500; i++) {
+        verticies.add(String.valueOf(i));
+        for (int j = 0; j < 100; j++) {
+          String destination = String.valueOf((i + 7 * j) % 500);
+          dot.append(i).append("->").append(destination).append("\n");
+          edges.add(new Edge<>(String.valueOf(i), destination));
+        }
+      }
+      Path file = Files.createTempFile("graph-calculator", ".txt");
+      System.setProperty(OffHeapAdjacencyIndex.THRESHOLD_PROPERTY, "0");
+      try {
+        Files.writeString(file, dot.append("}\n"));
+        Graph<String> direct = DotGraphLoader.load(file);
+        Assert.assertTrue(direct.isOffHeap());
+
+        // a copy of the 50000 edges would take at least 4 bytes each
+        long before = direct.estimateFootprint();
+        Assert.assertTrue(direct.removeEdge("0", "0"));
+        Assert.assertTrue(direct.estimateFootprint() - before < 4L * edges.size());
+
+        // removed edges can be added back, and added edges removed again
+        Assert.assertTrue(direct.addEdge("0", "0"));
+        Assert.assertFalse(direct.addEdge("0", "7"));
+        Assert.assertTrue(direct.removeEdge("1", "8"));
+        Assert.assertFalse(direct.removeEdge("1", "8"));
+        Assert.assertTrue(direct.addEdge("1", "2"));
+        Assert.assertTrue(direct.addEdge("500", "0"));
+        Assert.assertTrue(direct.removeEdge("500", "0"));
+        edges.remove(new Edge<>("1", "8"));
+        edges.add(new Edge<>("1", "2"));
+        verticies.add("500");
+        Assert.assertEquals(describe(new Graph<>(verticies, edges)), describe(direct));
+        Assert.assertTrue(direct.isOffHeap());
+      } finally {
+        System.clearProperty(OffHeapAdjacencyIndex.THRESHOLD_PROPERTY);
+        Files.delete(file);
+      }
+    }
+
+    // a directory exists but cannot be read, which must be reported rather than end the program
+    @Test
+    public void TY_09_open_directory() throws Exception {
+      runCommands(OPEN_FILE, ".", OPEN_SNAPSHOT, ".", OPEN_FILE, "a.txt", LIST_ROOT_VERTICIES);
+      assertContains("Error: file '.' is not a valid DOT graph");
+      assertContains("Error: file '.' is not a valid graph snapshot");
+      assertContains("[0]");
+    }
+
+    // a session keeps the verticies the graph had when it was taken
+    @Test
+    public void TY_10_session_after_change() throws Exception {
+      runCommands(OPEN_FILE, "a.txt", ADD_VERTEX, "7", ADD_VERTEX, "8", LIST_VERTICIES_EDGES);
+      assertContains("Added vertex 8");
+      // an equivalence relation, so looking up a class goes through the partition
+      Graph<String> graph =
+          new Graph<>(
+              new HashSet<>(List.of("0", "1")),
+              new HashSet<>(
+                  List.of(
+                      new Edge<>("0", "0"),
+                      new Edge<>("0", "1"),
+                      new Edge<>("1", "0"),
+                      new Edge<>("1", "1"))));
+      graph.addVertex("2");
+      graph.addEdge("2", "2");
+      Graph<String> session = graph.newSession();
+      graph.addVertex("7");
+      graph.addEdge("8", "8");
+      Assert.assertEquals(List.of("0", "1", "2"), session.getVerticies());
+      Assert.assertTrue(session.isEquivalence());
+      Assert.assertEquals(Set.of("0", "1"), session.getEquivalenceClass("1"));
+      Assert.assertEquals(Set.of(), session.getEquivalenceClass("7"));
+      Assert.assertEquals(Set.of(), session.getEquivalenceClass("8"));
+      Assert.assertFalse(session.hasEdge("8", "8"));
+      Assert.assertTrue(graph.getVerticies().contains("7"));
+    }
+
+    // the recursive searches of a long chain recurse once for every step they take
+    @Test
+    public void TY_11_deepest_recursion() throws Exception {
+      StringBuilder dot = new StringBuilder("digraph chain {\n");
+      for (int i = 1; i < 1000; i++) {
+        dot.append(i - 1).append("->").append(i).append("\n");
+      }
+      Path chain = Files.createTempFile(Path.of("testcases"), "chain", ".txt");
+      Path export = Files.createTempFile("graph-calculator", ".jsonl");
+      List<String> lines;
+      try {
+        Files.writeString(chain, dot.append("}\n"));
+        runCommands(
+            OPEN_FILE,
+            chain.getFileName().toString(),
+            GRAPH_SEARCH_RBFS,
+            GRAPH_SEARCH_RDFS,
+            GRAPH_SEARCH_IDFS,
+            STATS,
+            EXPORT_STATS,
+            export.toString());
+        lines = Files.readAllLines(export);
+      } finally {
+        Files.delete(chain);
+        Files.delete(export);
+      }
+      // breadth first takes a call for each vertex, depth first one for each push and each pop
+      assertContains("deepest recursion: 1001 calls");
+      assertContains("deepest recursion: 2000 calls");
+      Map<String, Long> depths = new HashMap<>();
+      Pattern json =
+          Pattern.compile("\\{\"command\":\"([A-Z_]+)\".*,\"deepestRecursion\":(\\d+),.*");
+      for (String line : lines) {
+        Matcher matcher = json.matcher(line);
+        Assert.assertTrue(line, matcher.matches());
+        depths.put(matcher.group(1), Long.parseLong(matcher.group(2)));
+      }
+      Assert.assertEquals(
+          Map.of(
+              "OPEN_FILE", 0L,
+              "GRAPH_SEARCH_RBFS", 1001L,
+              "GRAPH_SEARCH_RDFS", 2000L,
+              "GRAPH_SEARCH_IDFS", 0L,
+              "STATS", 0L),
+          depths);
+    }
   }
 }